@@ -0,0 +1,70 @@
+package world.attractions.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.entity.City;
+
+//Measures building CityData objects from City entities and encoding them as JSON, without a database.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CityDataBenchmark {
+
+	@Param({ "100", "1000" })
+	private int cities;
+
+	@Param({ "10" })
+	private int attractionsPerCity;
+
+	@Param({ "3" })
+	private int categoriesPerCity;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private List<City> cityEntities;
+	private List<CityData> cityData;
+
+	@Setup
+	public void setUp() {
+		cityEntities = new SyntheticWorld(cities, attractionsPerCity, 50, categoriesPerCity, 42).getCities();
+		cityData = mapCities();
+	}
+
+	//Builds a CityData for every city, as the list endpoints do
+	@Benchmark
+	public List<CityData> mapCities() {
+		return cityEntities.stream().map(CityData::new).toList();
+	}
+
+	//Encodes CityData objects that were already built
+	@Benchmark
+	public byte[] serializeCities() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(cityData);
+	}
+
+	//Builds and encodes the CityData objects
+	@Benchmark
+	public byte[] mapAndSerializeCities() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(mapCities());
+	}
+}
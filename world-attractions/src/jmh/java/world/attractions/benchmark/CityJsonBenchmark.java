@@ -0,0 +1,124 @@
+package world.attractions.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.entity.City;
+import world.attractions.service.CityJsonWriter;
+
+//Compares writing the JSON of the cities through CityData objects with writing it straight from the City entities with
+//CityJsonWriter, without a database. The allocation rate is the interesting result, so run it with JMH's GC profiler:
+//mvn -Pbenchmark package exec:exec@run-benchmarks -Djmh.args="CityJsonBenchmark -prof gc"
+//and compare gc.alloc.rate.norm, the bytes allocated per operation. The setup fails if the two ways do not write the
+//same bytes.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CityJsonBenchmark {
+
+	@Param({ "100", "1000" })
+	private int cities;
+
+	@Param({ "10", "100" })
+	private int attractionsPerCity;
+
+	@Param({ "3" })
+	private int categoriesPerCity;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CityJsonWriter cityJsonWriter = new CityJsonWriter(objectMapper);
+	private List<City> cityEntities;
+
+	//Stands in for the response output stream. It is reset before each operation, so its array is reused.
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream(1024 * 1024);
+
+	@Setup
+	public void setUp() throws IOException {
+		cityEntities = new SyntheticWorld(cities, attractionsPerCity, 50, categoriesPerCity, 42).getCities();
+
+		writeList();
+
+		if (!Arrays.equals(mapAndSerializeList(), output.toByteArray())) {
+			throw new IllegalStateException("CityJsonWriter does not write the same JSON as CityData.");
+		}
+
+		for (City city : cityEntities) {
+			if (!Arrays.equals(objectMapper.writeValueAsBytes(new CityData(city)), cityJsonWriter.toBytes(city))) {
+				throw new IllegalStateException("CityJsonWriter does not write the same JSON as CityData for city "
+						+ city.getCityId() + ".");
+			}
+		}
+	}
+
+	//Builds the CityData list and serializes it, as GET /city did
+	@Benchmark
+	public byte[] mapAndSerializeList() throws IOException {
+		return objectMapper.writeValueAsBytes(cityEntities.stream().map(CityData::new).toList());
+	}
+
+	//Writes the same JSON array from the entities, as GET /city does. The JSON is not copied out of the buffer, as the
+	//response streams it instead of returning an array.
+	@Benchmark
+	public int writeList() throws IOException {
+		output.reset();
+
+		try (JsonGenerator generator = cityJsonWriter.createGenerator(output)) {
+			generator.writeStartArray();
+
+			for (City city : cityEntities) {
+				cityJsonWriter.writeCity(generator, city);
+			}
+
+			generator.writeEndArray();
+		}
+
+		return output.size();
+	}
+
+	//Builds and serializes a CityData for every city, as GET /city/{cityId} did when it loaded the read model
+	@Benchmark
+	public int mapAndSerializeEachCity() throws IOException {
+		int bytes = 0;
+
+		for (City city : cityEntities) {
+			bytes += objectMapper.writeValueAsBytes(new CityData(city)).length;
+		}
+
+		return bytes;
+	}
+
+	//Writes every city into the reused buffer of CityJsonWriter, as GET /city/{cityId} does
+	@Benchmark
+	public int writeEachCity() {
+		int bytes = 0;
+
+		for (City city : cityEntities) {
+			bytes += cityJsonWriter.toBytes(city).length;
+		}
+
+		return bytes;
+	}
+}
@@ -0,0 +1,85 @@
+package world.attractions.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityPage;
+import world.attractions.controller.model.CitySummary;
+import world.attractions.service.CityService;
+
+//Measures the CityService read methods against an embedded H2 database. The city cache is turned off, so every call
+//reads the database.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CityServiceBenchmark {
+
+	private static final int CATEGORIES = 20;
+
+	@Param({ "200" })
+	private int cities;
+
+	@Param({ "10" })
+	private int attractionsPerCity;
+
+	@Param({ "3" })
+	private int categoriesPerCity;
+
+	private EmbeddedCatalog catalog;
+	private CityService cityService;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		catalog = new EmbeddedCatalog("service-benchmark", WebApplicationType.NONE,
+				Map.of("world-attractions.cache.maximum-size", "0"));
+		catalog.seed(new SyntheticWorld(cities, attractionsPerCity, CATEGORIES, categoriesPerCity, 42));
+		cityService = catalog.getBean(CityService.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		catalog.close();
+	}
+
+	@Benchmark
+	public CityData retrieveCityById() {
+		return cityService.retrieveCityById(1L + ThreadLocalRandom.current().nextInt(cities));
+	}
+
+	@Benchmark
+	public CityPage retrieveCityPage() {
+		return cityService.retrieveCityPage(null, 100);
+	}
+
+	@Benchmark
+	public List<CityData> retrieveAllCities() {
+		return cityService.retrieveAllCities();
+	}
+
+	@Benchmark
+	public List<CitySummary> retrieveAllCitiesInCategory() {
+		return cityService.retrieveAllCitiesInCategory(1L + ThreadLocalRandom.current().nextInt(CATEGORIES));
+	}
+}
@@ -0,0 +1,95 @@
+package world.attractions.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import world.attractions.WorldAttractionsApplication;
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+import world.attractions.service.CityService;
+
+//Starts the application against an in-memory H2 database in MySQL mode, so the benchmarks can run without a MySQL
+//server. The schema is created by the Flyway migrations, with the H2 versions of the MySQL-only ones.
+
+public class EmbeddedCatalog implements AutoCloseable {
+
+	private final ConfigurableApplicationContext context;
+
+	//Starts the application with an empty database. The extra properties override the defaults below.
+	public EmbeddedCatalog(String databaseName, WebApplicationType webApplicationType, Map<String, Object> properties) {
+		Map<String, Object> defaults = new HashMap<>();
+
+		defaults.put("spring.datasource.url",
+				"jdbc:h2:mem:" + databaseName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		defaults.put("spring.datasource.username", "sa");
+		defaults.put("spring.datasource.password", "");
+		defaults.put("spring.jpa.show-sql", "false");
+		defaults.put("world-attractions.search.rebuild-on-startup", "false");
+		defaults.put("world-attractions.backfill.attraction-numbers", "false");
+		//The load drivers send every request from the same address
+		defaults.put("world-attractions.rate-limit.enabled", "false");
+		defaults.putAll(properties);
+
+		// @formatter:off
+		context = new SpringApplicationBuilder(WorldAttractionsApplication.class)
+				.web(webApplicationType)
+				.properties(defaults)
+				.run();
+		// @formatter:on
+	}
+
+	//Saves the synthetic cities with their attractions and categories through the CityService class. Each city is saved
+	//in one transaction.
+	public void seed(SyntheticWorld world) {
+		CityService cityService = getBean(CityService.class);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(getBean(PlatformTransactionManager.class));
+		Map<Long, Long> categoryIds = new HashMap<>();
+
+		for (City city : world.getCities()) {
+			transactionTemplate.executeWithoutResult(status -> seedCity(cityService, city, categoryIds));
+		}
+	}
+
+	private void seedCity(CityService cityService, City city, Map<Long, Long> categoryIds) {
+		CityData cityData = new CityData(city);
+		cityData.setCityId(null);
+		Long cityId = cityService.saveCity(cityData).getCityId();
+
+		for (Attraction attraction : city.getAttractions()) {
+			CityAttraction cityAttraction = new CityAttraction(attraction);
+			cityAttraction.setAttractionId(null);
+			cityService.saveAttraction(cityId, cityAttraction);
+		}
+
+		for (Category category : city.getCategories()) {
+			CityCategory cityCategory = new CityCategory(category);
+			cityCategory.setCategoryId(categoryIds.get(category.getCategoryId()));
+
+			Long categoryId = cityService.saveCategory(cityId, cityCategory).getCategoryId();
+			categoryIds.put(category.getCategoryId(), categoryId);
+		}
+	}
+
+	public <T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	public ConfigurableApplicationContext getContext() {
+		return context;
+	}
+
+	@Override
+	public void close() {
+		context.close();
+	}
+}
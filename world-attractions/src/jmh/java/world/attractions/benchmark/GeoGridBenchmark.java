@@ -0,0 +1,123 @@
+package world.attractions.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.attractions.controller.model.NearbyAttraction;
+import world.attractions.service.GeoGrid;
+
+//Measures the nearby and nearest searches of the attraction location grid at a million attractions, without a database.
+//The attractions are clustered around cities, and a few cities have most of them, so some searches land in dense cells.
+//The searched points are near random cities.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class GeoGridBenchmark {
+
+	private static final int QUERY_POINTS = 4096;
+
+	@Param({ "1000000" })
+	private int attractions;
+
+	@Param({ "20000" })
+	private int cities;
+
+	@Param({ "0.1" })
+	private double cellDegrees;
+
+	private GeoGrid grid;
+	private double[] queryLatitudes;
+	private double[] queryLongitudes;
+	private int nextQuery;
+	private long nextMove;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		double[] cityLatitudes = new double[cities];
+		double[] cityLongitudes = new double[cities];
+
+		for (int city = 0; city < cities; city++) {
+			cityLatitudes[city] = -60 + random.nextDouble() * 130;
+			cityLongitudes[city] = -180 + random.nextDouble() * 360;
+		}
+
+		grid = new GeoGrid(cellDegrees);
+
+		for (long attraction = 1; attraction <= attractions; attraction++) {
+			//Cubing the random number gives the first cities most of the attractions
+			int city = (int) (cities * Math.pow(random.nextDouble(), 3));
+			grid.put(attraction, city, near(random, cityLatitudes[city], 0.05),
+					wrap(near(random, cityLongitudes[city], 0.05)));
+		}
+
+		queryLatitudes = new double[QUERY_POINTS];
+		queryLongitudes = new double[QUERY_POINTS];
+
+		for (int query = 0; query < QUERY_POINTS; query++) {
+			int city = random.nextInt(cities);
+			queryLatitudes[query] = near(random, cityLatitudes[city], 0.02);
+			queryLongitudes[query] = wrap(near(random, cityLongitudes[city], 0.02));
+		}
+	}
+
+	//The attractions within a kilometer, as for a walk
+	@Benchmark
+	public List<NearbyAttraction> nearbyWithin1Km() {
+		int query = nextQuery();
+		return grid.findWithinRadius(queryLatitudes[query], queryLongitudes[query], 1, 50);
+	}
+
+	//The attractions within 25 kilometers, as for a day trip
+	@Benchmark
+	public List<NearbyAttraction> nearbyWithin25Km() {
+		int query = nextQuery();
+		return grid.findWithinRadius(queryLatitudes[query], queryLongitudes[query], 25, 50);
+	}
+
+	@Benchmark
+	public List<NearbyAttraction> nearest10() {
+		int query = nextQuery();
+		return grid.findNearest(queryLatitudes[query], queryLongitudes[query], 10);
+	}
+
+	//Moves an attraction to a searched point, as an update that changes its location does
+	@Benchmark
+	public int moveAttraction() {
+		int query = nextQuery();
+		long attraction = 1 + Math.floorMod(nextMove++, attractions);
+
+		grid.put(attraction, 0, queryLatitudes[query], queryLongitudes[query]);
+		return query;
+	}
+
+	private int nextQuery() {
+		nextQuery = (nextQuery + 1) & (QUERY_POINTS - 1);
+		return nextQuery;
+	}
+
+	private static double near(Random random, double degrees, double spread) {
+		return Math.max(-90, Math.min(90, degrees + random.nextGaussian() * spread));
+	}
+
+	private static double wrap(double longitude) {
+		return (longitude + 540) % 360 - 180;
+	}
+}
@@ -0,0 +1,264 @@
+package world.attractions.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+//Starts the application on a random port against an embedded H2 database and sends requests to the CityController
+//endpoints from many client threads. It runs once with Tomcat's platform threads and once with virtual threads, and
+//reports the throughput and latency percentiles of each endpoint. Virtual threads are skipped on Java versions before 21.
+//Options are passed as --name=value, for example --threads=128 --seconds=60 --cities=1000.
+
+public class LoadDriver {
+
+	private final int threads;
+	private final int seconds;
+	private final int cities;
+	private final int attractionsPerCity;
+	private final int categories;
+	private final List<String> modes;
+
+	public LoadDriver(Map<String, String> options) {
+		threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+		seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+		cities = Integer.parseInt(options.getOrDefault("cities", "500"));
+		attractionsPerCity = Integer.parseInt(options.getOrDefault("attractions-per-city", "10"));
+		categories = Integer.parseInt(options.getOrDefault("categories", "20"));
+		modes = List.of(options.getOrDefault("modes", "platform,virtual").split(","));
+	}
+
+	public static void main(String[] args) throws Exception {
+		new LoadDriver(parseOptions(args)).run();
+	}
+
+	//Reads the --name=value arguments. An argument without a value is true.
+	static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+
+		for (String arg : args) {
+			String[] option = arg.replaceFirst("^--", "").split("=", 2);
+			options.put(option[0], option.length > 1 ? option[1] : "true");
+		}
+
+		return options;
+	}
+
+	//Runs the load test in each mode and writes the results to target/load-result.json
+	public void run() throws Exception {
+		Map<String, Map<String, EndpointResult>> results = new LinkedHashMap<>();
+
+		for (String mode : modes) {
+			if (mode.equals("virtual") && Runtime.version().feature() < 21) {
+				System.out.println("Skipping virtual threads, which need Java 21. This is Java " + Runtime.version());
+				continue;
+			}
+
+			results.put(mode, runMode(mode));
+		}
+
+		ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+		File output = new File("target/load-result.json");
+
+		output.getParentFile().mkdirs();
+		objectMapper.writeValue(output, results);
+		System.out.println("Wrote " + output.getAbsolutePath());
+	}
+
+	//Starts the application in the mode, seeds it and sends requests for the configured number of seconds
+	private Map<String, EndpointResult> runMode(String mode) throws Exception {
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("server.port", "0");
+		properties.put("spring.datasource.hikari.maximum-pool-size", "40");
+		properties.put("world-attractions.virtual-threads.enabled", String.valueOf(mode.equals("virtual")));
+		properties.put("logging.level.world.attractions", "warn");
+
+		try (EmbeddedCatalog catalog = new EmbeddedCatalog("load-" + mode, WebApplicationType.SERVLET, properties)) {
+			catalog.seed(new SyntheticWorld(cities, attractionsPerCity, categories, 3, 42));
+
+			int port = ((ServletWebServerApplicationContext) catalog.getContext()).getWebServer().getPort();
+			Map<String, EndpointResult> results = drive("http://localhost:" + port, endpoints());
+
+			System.out.println();
+			System.out.println("Mode: " + mode + ", " + threads + " client threads, " + seconds + " s");
+			print(results);
+
+			return results;
+		}
+	}
+
+	//The endpoints that are requested and how often each one is picked
+	protected List<Endpoint> endpoints() {
+		int attractions = cities * attractionsPerCity;
+
+		// @formatter:off
+		return List.of(
+				new Endpoint("GET /city/{cityId}", 40, random -> "/city/" + (1 + random.nextInt(cities))),
+				new Endpoint("GET /city/{cityId}/attraction", 30, random -> {
+					int attractionId = 1 + random.nextInt(attractions);
+					return "/city/" + (1 + (attractionId - 1) / attractionsPerCity) + "/attraction/" + attractionId;
+				}),
+				new Endpoint("GET /category/{categoryId}", 20, random -> "/category/" + (1 + random.nextInt(categories))),
+				new Endpoint("GET /city?pageSize=50", 10, random -> "/city?pageSize=50"));
+		// @formatter:on
+	}
+
+	//Prints the throughput and latency of each endpoint
+	protected static void print(Map<String, EndpointResult> results) {
+		System.out.printf("%-28s %10s %10s %10s %10s %10s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "max ms",
+				"errors");
+		results.forEach((name, result) -> System.out.printf("%-28s %10.1f %10.2f %10.2f %10.2f %10d%n", name,
+				result.requestsPerSecond(), result.p50Millis(), result.p99Millis(), result.maxMillis(),
+				result.errors()));
+	}
+
+	//Sends requests for the configured number of seconds
+	protected Map<String, EndpointResult> drive(String baseUrl, List<Endpoint> endpoints) throws Exception {
+		return drive(baseUrl, endpoints, seconds);
+	}
+
+	//Sends requests from the client threads until the time is up. Each thread picks an endpoint by weight for every
+	//request and records the latency in its own lists, which are merged at the end.
+	protected Map<String, EndpointResult> drive(String baseUrl, List<Endpoint> endpoints, int seconds)
+			throws Exception {
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build();
+		int totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+		long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Recorder[]>> futures = new ArrayList<>();
+
+		for (int thread = 0; thread < threads; thread++) {
+			long seed = thread;
+
+			futures.add(executor.submit(() -> {
+				Random random = new Random(seed);
+				Recorder[] recorders = new Recorder[endpoints.size()];
+				Arrays.setAll(recorders, index -> new Recorder());
+
+				while (System.nanoTime() < deadline) {
+					int index = pick(endpoints, random.nextInt(totalWeight));
+					HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoints.get(index).path().apply(random)))
+							.timeout(Duration.ofSeconds(30)).GET().build();
+					long start = System.nanoTime();
+
+					try {
+						HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+						recorders[index].record(System.nanoTime() - start, response.statusCode() >= 400);
+					} catch (IOException e) {
+						recorders[index].record(System.nanoTime() - start, true);
+					}
+				}
+
+				return recorders;
+			}));
+		}
+
+		Recorder[] merged = new Recorder[endpoints.size()];
+		Arrays.setAll(merged, index -> new Recorder());
+
+		for (Future<Recorder[]> future : futures) {
+			Recorder[] recorders = future.get();
+
+			for (int index = 0; index < recorders.length; index++) {
+				merged[index].addAll(recorders[index]);
+			}
+		}
+
+		executor.shutdown();
+
+		Map<String, EndpointResult> results = new LinkedHashMap<>();
+
+		for (int index = 0; index < endpoints.size(); index++) {
+			results.put(endpoints.get(index).name(), merged[index].result(seconds));
+		}
+
+		return results;
+	}
+
+	private static int pick(List<Endpoint> endpoints, int roll) {
+		for (int index = 0; index < endpoints.size(); index++) {
+			roll -= endpoints.get(index).weight();
+
+			if (roll < 0) {
+				return index;
+			}
+		}
+
+		return endpoints.size() - 1;
+	}
+
+	//An endpoint, its weight in the request mix and a function that builds a request path
+	public record Endpoint(String name, int weight, Function<Random, String> path) {
+	}
+
+	//The throughput and latency of one endpoint
+	public record EndpointResult(long requests, long errors, double requestsPerSecond, double p50Millis,
+			double p99Millis, double maxMillis) {
+	}
+
+	//Collects the latencies of one endpoint in a growing array
+	static class Recorder {
+		private long[] latencies = new long[1024];
+		private int count;
+		private long errors;
+
+		void record(long nanos, boolean error) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+
+			latencies[count++] = nanos;
+
+			if (error) {
+				errors++;
+			}
+		}
+
+		void addAll(Recorder other) {
+			for (int index = 0; index < other.count; index++) {
+				record(other.latencies[index], false);
+			}
+
+			errors += other.errors;
+		}
+
+		EndpointResult result(int seconds) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+
+			return new EndpointResult(count, errors, (double) count / seconds, percentile(sorted, 0.50),
+					percentile(sorted, 0.99), count == 0 ? 0 : sorted[count - 1] / 1_000_000.0);
+		}
+
+		private static double percentile(long[] sorted, double percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+
+			int index = (int) Math.ceil(percentile * sorted.length) - 1;
+			return sorted[Math.max(index, 0)] / 1_000_000.0;
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package world.attractions.benchmark;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import world.attractions.benchmark.WorldGenerator.Zipf;
+import world.attractions.service.AttractionGeoIndex;
+import world.attractions.service.AttractionSearchIndex;
+import world.attractions.service.CatalogStatistics;
+
+//Runs the CityController endpoints against a production-sized synthetic catalog without a network or a MySQL server.
+//WorldGenerator writes the catalog into an H2 database file under target, which later runs reuse. The driver then
+//sends a mix of requests in which a few cities and categories get most of the traffic, and afterwards drives each
+//endpoint on its own so that the garbage collections and heap use can be put down to it.
+//It reports the throughput and latency percentiles of each endpoint, the collections, allocation rate and heap of each
+//phase, and a heap sample every few seconds of the mixed phase, in which a heap that keeps growing after collections
+//shows a leak. The client threads run in the same JVM, so their allocation is included in the allocation rate. The rate
+//is summed over the threads that are alive at the end of a phase, so a thread that ended during it is left out.
+//Options are passed as --name=value, for example --cities=10000 --attractions-per-city=20 --seconds=600.
+
+public class SoakDriver extends LoadDriver {
+
+	private final int threads;
+	private final int seconds;
+	private final int endpointSeconds;
+	private final int sampleSeconds;
+	private final int cities;
+	private final int attractionsPerCity;
+	private final int categories;
+	private final int categoriesPerCity;
+	private final double categorySkew;
+	private final double citySkew;
+	private final long seed;
+	private final String database;
+	private final boolean searchIndex;
+
+	//The locations of the cities, by city ID - 1, for the nearby searches
+	private double[] latitudes;
+	private double[] longitudes;
+
+	//Maps the popularity rank of a city to its ID, so the busiest cities are spread over the ID range
+	private int[] cityByRank;
+
+	public SoakDriver(Map<String, String> options) {
+		super(options);
+		threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+		seconds = Integer.parseInt(options.getOrDefault("seconds", "300"));
+		endpointSeconds = Integer.parseInt(options.getOrDefault("endpoint-seconds", "20"));
+		sampleSeconds = Integer.parseInt(options.getOrDefault("sample-seconds", "10"));
+		cities = Integer.parseInt(options.getOrDefault("cities", "100000"));
+		attractionsPerCity = Integer.parseInt(options.getOrDefault("attractions-per-city", "50"));
+		categories = Integer.parseInt(options.getOrDefault("categories", "200"));
+		categoriesPerCity = Integer.parseInt(options.getOrDefault("categories-per-city", "3"));
+		categorySkew = Double.parseDouble(options.getOrDefault("category-skew", "1.1"));
+		citySkew = Double.parseDouble(options.getOrDefault("city-skew", "0.9"));
+		seed = Long.parseLong(options.getOrDefault("seed", "42"));
+		database = options.getOrDefault("database", "target/soak-world");
+		searchIndex = Boolean.parseBoolean(options.getOrDefault("search-index", "false"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		new SoakDriver(parseOptions(args)).run();
+	}
+
+	//Generates or reuses the catalog, runs the mixed phase and then each endpoint alone, and writes the results to
+	//target/soak-result.json
+	@Override
+	public void run() throws Exception {
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("server.port", "0");
+		properties.put("spring.datasource.hikari.maximum-pool-size", "40");
+		properties.put("logging.level.world.attractions", "warn");
+		//The derived stores are rebuilt once the catalog has been written
+		properties.put("world-attractions.geo.rebuild-on-startup", "false");
+		properties.put("world-attractions.stats.rebuild-on-startup", "false");
+
+		//A database name of mem keeps the catalog in memory, which needs a larger heap and is not reused
+		if (!database.equals("mem")) {
+			properties.put("spring.datasource.url", "jdbc:h2:file:" + new File(database).getAbsolutePath()
+					+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+		}
+
+		try (EmbeddedCatalog catalog = new EmbeddedCatalog("soak", WebApplicationType.SERVLET, properties)) {
+			WorldSummary world = prepareWorld(catalog);
+			int port = ((ServletWebServerApplicationContext) catalog.getContext()).getWebServer().getPort();
+			String baseUrl = "http://localhost:" + port;
+			List<Endpoint> endpoints = endpoints();
+
+			System.out.println();
+			System.out.println("Mixed: " + threads + " client threads, " + seconds + " s");
+			PhaseResult mixed = runPhase(baseUrl, endpoints, seconds, true);
+			print(mixed.endpoints());
+			printMemory("all endpoints", mixed.memory());
+
+			Map<String, PhaseResult> isolated = new LinkedHashMap<>();
+
+			System.out.println();
+			System.out.println("Each endpoint alone: " + threads + " client threads, " + endpointSeconds + " s each");
+
+			for (Endpoint endpoint : endpoints) {
+				PhaseResult result = runPhase(baseUrl, List.of(endpoint), endpointSeconds, false);
+				isolated.put(endpoint.name(), result);
+			}
+
+			Map<String, EndpointResult> alone = new LinkedHashMap<>();
+			isolated.values().forEach(result -> alone.putAll(result.endpoints()));
+
+			print(alone);
+			isolated.forEach((name, result) -> printMemory(name, result.memory()));
+
+			ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+			File output = new File("target/soak-result.json");
+
+			output.getParentFile().mkdirs();
+			objectMapper.writeValue(output, new SoakResult(world, mixed, isolated));
+			System.out.println("Wrote " + output.getAbsolutePath());
+		}
+	}
+
+	//Writes the catalog, or checks the one that an earlier run wrote, and rebuilds the stores that are derived from it
+	private WorldSummary prepareWorld(EmbeddedCatalog catalog) throws Exception {
+		DataSource dataSource = catalog.getBean(DataSource.class);
+		WorldGenerator generator = new WorldGenerator(cities, attractionsPerCity, categories, categoriesPerCity,
+				categorySkew, seed);
+		long start = System.nanoTime();
+		boolean generated = generator.generate(dataSource);
+
+		if (!generated) {
+			generator.check(dataSource);
+			System.out.println("Reusing the catalog in " + database);
+		}
+
+		catalog.getBean(AttractionGeoIndex.class).rebuild();
+		catalog.getBean(CatalogStatistics.class).rebuild();
+
+		if (searchIndex) {
+			catalog.getBean(AttractionSearchIndex.class).rebuild();
+		}
+
+		loadCityLocations(dataSource);
+
+		List<Integer> ranks = new ArrayList<>(cities);
+
+		for (int cityId = 1; cityId <= cities; cityId++) {
+			ranks.add(cityId);
+		}
+
+		Collections.shuffle(ranks, new Random(seed));
+		cityByRank = ranks.stream().mapToInt(Integer::intValue).toArray();
+
+		double setupSeconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Catalog of %d cities and %d attractions ready in %.1f s%n", cities,
+				(long) cities * attractionsPerCity, setupSeconds);
+
+		return new WorldSummary(cities, (long) cities * attractionsPerCity, categories, generated, setupSeconds);
+	}
+
+	private void loadCityLocations(DataSource dataSource) throws SQLException {
+		latitudes = new double[cities];
+		longitudes = new double[cities];
+
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT city_id, latitude, longitude FROM city")) {
+			while (resultSet.next()) {
+				int index = (int) resultSet.getLong(1) - 1;
+
+				latitudes[index] = resultSet.getDouble(2);
+				longitudes[index] = resultSet.getDouble(3);
+			}
+		}
+	}
+
+	//The request mix. Cities are picked by popularity, which follows a Zipf distribution with the city skew, and
+	//categories by the same distribution as their membership.
+	@Override
+	protected List<Endpoint> endpoints() {
+		Zipf cityPopularity = new Zipf(cities, citySkew);
+		Zipf categoryPopularity = new Zipf(categories, categorySkew);
+
+		// @formatter:off
+		return List.of(
+				new Endpoint("GET /city/{cityId}", 30, random -> "/city/" + hotCity(cityPopularity, random)),
+				new Endpoint("GET /city/{cityId}/attraction", 20, random -> {
+					int cityId = hotCity(cityPopularity, random);
+					long attractionId = (long) (cityId - 1) * attractionsPerCity + 1 + random.nextInt(attractionsPerCity);
+					return "/city/" + cityId + "/attraction/" + attractionId;
+				}),
+				new Endpoint("GET /city?ids", 5, random -> {
+					StringJoiner ids = new StringJoiner(",");
+
+					for (int index = 0; index < 10; index++) {
+						ids.add(String.valueOf(hotCity(cityPopularity, random)));
+					}
+
+					return "/city?ids=" + ids;
+				}),
+				new Endpoint("GET /city?pageSize=50", 8,
+						random -> "/city?pageSize=50&pageToken=" + random.nextInt(cities)),
+				new Endpoint("GET /category/{categoryId}", 10,
+						random -> "/category/" + categoryPopularity.sample(random) + "?pageSize=50"),
+				new Endpoint("GET /city?country", 2, random -> "/city?country="
+						+ URLEncoder.encode(SyntheticWorld.COUNTRIES[random.nextInt(SyntheticWorld.COUNTRIES.length)],
+								StandardCharsets.UTF_8)
+						+ "&sort=-cityName&fields=cityId,cityName"),
+				new Endpoint("GET /attraction/nearby", 10, random -> {
+					int index = hotCity(cityPopularity, random) - 1;
+					return "/attraction/nearby?latitude=" + latitudes[index] + "&longitude=" + longitudes[index]
+							+ "&radiusKm=10&limit=20";
+				}),
+				new Endpoint("GET /attraction/most-visited", 5, random -> "/attraction/most-visited?limit=10"),
+				new Endpoint("GET /attraction?currency", 5,
+						random -> "/attraction?currency=USD&maxPrice=" + (10 + random.nextInt(90)) + "&limit=50"),
+				new Endpoint("GET /stats/country", 3, random -> "/stats/country"),
+				new Endpoint("GET /stats/category/{id}", 2,
+						random -> "/stats/category/" + categoryPopularity.sample(random)));
+		// @formatter:on
+	}
+
+	private int hotCity(Zipf cityPopularity, Random random) {
+		return cityByRank[cityPopularity.sample(random) - 1];
+	}
+
+	//Drives the endpoints and measures the JVM around them. The mixed phase also samples the heap while it runs.
+	private PhaseResult runPhase(String baseUrl, List<Endpoint> endpoints, int phaseSeconds, boolean sampleHeap)
+			throws Exception {
+		List<HeapSample> samples = Collections.synchronizedList(new ArrayList<>());
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		MemoryProbe probe = new MemoryProbe();
+
+		if (sampleHeap) {
+			long start = System.nanoTime();
+			sampler.scheduleAtFixedRate(() -> samples.add(probe.sample((System.nanoTime() - start) / 1e9)),
+					sampleSeconds, sampleSeconds, TimeUnit.SECONDS);
+		}
+
+		Map<String, EndpointResult> results = drive(baseUrl, endpoints, phaseSeconds);
+
+		sampler.shutdownNow();
+		return new PhaseResult(results, probe.finish(phaseSeconds), List.copyOf(samples));
+	}
+
+	private static void printMemory(String name, MemoryResult memory) {
+		System.out.printf("%-28s %6d GCs %8d GC ms %10.1f MB/s allocated %8.1f MB peak heap %8.1f MB after GC%n",
+				name, memory.collections(), memory.collectionMillis(), memory.allocatedMbPerSecond(),
+				memory.peakHeapMb(), memory.heapAfterGcMb());
+	}
+
+	//Reads the collector, allocation and heap counters of the JVM at the start of a phase and reports their change
+	static class MemoryProbe {
+		private final long collections;
+		private final long collectionMillis;
+		private final Map<Long, Long> allocatedBytes;
+
+		MemoryProbe() {
+			heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+			collections = collections();
+			collectionMillis = collectionMillis();
+			allocatedBytes = allocatedBytes();
+		}
+
+		MemoryResult finish(int seconds) {
+			long peak = heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+			return new MemoryResult(collections() - collections, collectionMillis() - collectionMillis,
+					allocatedSince(allocatedBytes) / 1e6 / seconds, peak / 1e6, heapAfterGc() / 1e6);
+		}
+
+		HeapSample sample(double second) {
+			long used = heapPools().stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+			return new HeapSample(second, used / 1e6, heapAfterGc() / 1e6, collections() - collections);
+		}
+
+		private static List<MemoryPoolMXBean> heapPools() {
+			return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+					.toList();
+		}
+
+		//The heap that was still used after the last collection of each pool
+		private static long heapAfterGc() {
+			return heapPools().stream().map(MemoryPoolMXBean::getCollectionUsage).filter(Objects::nonNull)
+					.mapToLong(MemoryUsage::getUsed).sum();
+		}
+
+		private static long collections() {
+			return ManagementFactory.getGarbageCollectorMXBeans().stream()
+					.mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+		}
+
+		private static long collectionMillis() {
+			return ManagementFactory.getGarbageCollectorMXBeans().stream()
+					.mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+		}
+
+		//The bytes that each live thread has allocated since it started, by thread ID. It is empty on JVMs that do not
+		//count them. The total of every thread is only available from Java 21, so the threads are read one by one.
+		private static Map<Long, Long> allocatedBytes() {
+			Map<Long, Long> allocated = new HashMap<>();
+
+			if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+					&& threadMXBean.isThreadAllocatedMemoryEnabled()) {
+				long[] threadIds = threadMXBean.getAllThreadIds();
+				long[] bytes = threadMXBean.getThreadAllocatedBytes(threadIds);
+
+				for (int index = 0; index < threadIds.length; index++) {
+					//A thread that ended after its ID was read has -1
+					if (bytes[index] >= 0) {
+						allocated.put(threadIds[index], bytes[index]);
+					}
+				}
+			}
+
+			return allocated;
+		}
+
+		//The bytes that the live threads allocated since the start. A thread that started later counts from 0.
+		private static long allocatedSince(Map<Long, Long> start) {
+			return allocatedBytes().entrySet().stream()
+					.mapToLong(entry -> entry.getValue() - start.getOrDefault(entry.getKey(), 0L)).sum();
+		}
+	}
+
+	//The catalog that the run used and how long it took to write or check it and rebuild the derived stores
+	public record WorldSummary(int cities, long attractions, int categories, boolean generated,
+			double setupSeconds) {
+	}
+
+	//The collections, allocation and heap of the JVM during one phase
+	public record MemoryResult(long collections, long collectionMillis, double allocatedMbPerSecond,
+			double peakHeapMb, double heapAfterGcMb) {
+	}
+
+	//The heap at one point of the mixed phase
+	public record HeapSample(double second, double heapUsedMb, double heapAfterGcMb, long collections) {
+	}
+
+	public record PhaseResult(Map<String, EndpointResult> endpoints, MemoryResult memory,
+			List<HeapSample> heapSamples) {
+	}
+
+	public record SoakResult(WorldSummary world, PhaseResult mixed, Map<String, PhaseResult> isolated) {
+	}
+}
@@ -0,0 +1,239 @@
+package world.attractions.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+//Starts the packaged application several times in each startup mode and reports the time until /actuator/health answers
+//and the resident memory of the process at that point. The modes are:
+//jvm: the executable jar.
+//aot: the executable jar with the classes that Spring AOT generated at build time.
+//aot-cds: the AOT mode with a class data sharing archive of the classes loaded during startup. The archive is written
+//by a training run the first time.
+//native: the GraalVM native image, if it was built.
+//Build the jars with mvn -Paot,benchmark package, and the native image with mvn -Pnative native:compile. The
+//application connects to the database in application.yaml unless Spring Boot arguments are passed with --app-args.
+//Options are passed as --name=value, for example --runs=10 --modes=jvm,aot-cds. Resident memory is only read on Linux.
+
+public class StartupDriver {
+
+	private static final Path TARGET = Path.of("target");
+	private static final Path CDS_ARCHIVE = TARGET.resolve("world-attractions.jsa");
+	private static final String MAIN_CLASS = "world.attractions.WorldAttractionsApplication";
+	private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+	private final int runs;
+	private final List<String> modes;
+	private final List<String> appArgs;
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+	public StartupDriver(Map<String, String> options) {
+		runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+		modes = List.of(options.getOrDefault("modes", "jvm,aot,aot-cds,native").split(","));
+		appArgs = options.containsKey("app-args") ? List.of(options.get("app-args").trim().split("\\s+")) : List.of();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+
+		for (String arg : args) {
+			String[] option = arg.replaceFirst("^--", "").split("=", 2);
+			options.put(option[0], option.length > 1 ? option[1] : "true");
+		}
+
+		new StartupDriver(options).run();
+	}
+
+	//Runs each mode and writes the results to target/startup-result.json
+	private void run() throws Exception {
+		Map<String, ModeResult> results = new LinkedHashMap<>();
+
+		for (String mode : modes) {
+			List<String> command = command(mode);
+
+			if (command.isEmpty()) {
+				System.out.printf("%-8s skipped, it was not built%n", mode);
+				continue;
+			}
+
+			if (mode.equals("aot-cds") && !Files.exists(CDS_ARCHIVE)) {
+				train();
+			}
+
+			List<Long> startupMillis = new ArrayList<>();
+			List<Long> rssKilobytes = new ArrayList<>();
+
+			for (int run = 0; run < runs; run++) {
+				Measurement measurement = start(command);
+				startupMillis.add(measurement.startupMillis());
+				rssKilobytes.add(measurement.rssKilobytes());
+			}
+
+			long minStartupMillis = startupMillis.stream().min(Long::compare).orElse(0L);
+			ModeResult result = new ModeResult(median(startupMillis), minStartupMillis, median(rssKilobytes) / 1024.0,
+					startupMillis);
+			results.put(mode, result);
+
+			System.out.printf("%-8s startup median %5d ms, min %5d ms, RSS median %7.1f MB%n", mode,
+					result.medianStartupMillis(), result.minStartupMillis(), result.medianRssMegabytes());
+		}
+
+		ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+		File output = TARGET.resolve("startup-result.json").toFile();
+
+		objectMapper.writeValue(output, results);
+		System.out.println("Results written to " + output);
+	}
+
+	//Returns the command that starts the mode, or an empty list if its files were not built
+	private List<String> command(String mode) throws IOException {
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		Path executableJar = findJar("-exec.jar");
+		Path plainJar = findJar(".jar");
+		Path nativeImage = TARGET.resolve("world-attractions");
+		String classpath = plainJar + File.pathSeparator + TARGET.resolve("lib") + File.separator + "*";
+
+		List<String> command = switch (mode) {
+			case "jvm" -> Objects.isNull(executableJar) ? List.of() : List.of(java, "-jar", executableJar.toString());
+			case "aot" -> Objects.isNull(executableJar) ? List.of()
+					: List.of(java, "-Dspring.aot.enabled=true", "-jar", executableJar.toString());
+			case "aot-cds" -> Objects.isNull(plainJar) || !Files.isDirectory(TARGET.resolve("lib")) ? List.of()
+					: List.of(java, "-XX:SharedArchiveFile=" + CDS_ARCHIVE, "-Dspring.aot.enabled=true",
+							"-cp", classpath, MAIN_CLASS);
+			case "native" -> Files.isExecutable(nativeImage) ? List.of(nativeImage.toString()) : List.of();
+			default -> throw new IllegalArgumentException("Unknown mode " + mode + ".");
+		};
+
+		return command.isEmpty() ? command : withAppArgs(command);
+	}
+
+	//Starts the aot-cds command once with -XX:ArchiveClassesAtExit instead of -XX:SharedArchiveFile, waits until it is
+	//ready and stops it. The JVM writes the classes it loaded to the archive when it exits.
+	private void train() throws Exception {
+		List<String> command = new ArrayList<>(command("aot-cds"));
+		command.set(1, "-XX:ArchiveClassesAtExit=" + CDS_ARCHIVE);
+
+		System.out.println("Writing the class data sharing archive " + CDS_ARCHIVE);
+		start(command);
+	}
+
+	//Starts the process, waits until its health endpoint answers, reads its resident memory and stops it
+	private Measurement start(List<String> command) throws Exception {
+		int port = findFreePort();
+		List<String> portCommand = new ArrayList<>(command);
+		portCommand.add("--server.port=" + port);
+
+		HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+				.timeout(Duration.ofSeconds(1)).build();
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(portCommand).redirectErrorStream(true)
+				.redirectOutput(TARGET.resolve("startup-driver.log").toFile()).start();
+
+		try {
+			while (true) {
+				if (!process.isAlive()) {
+					throw new IllegalStateException("The application exited with status " + process.exitValue()
+							+ ". Its output is in target/startup-driver.log.");
+				}
+
+				if (System.nanoTime() - start > START_TIMEOUT.toNanos()) {
+					throw new IllegalStateException("The application did not start within " + START_TIMEOUT + ".");
+				}
+
+				try {
+					if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						break;
+					}
+				} catch (IOException e) {
+					//The server is not listening yet
+				}
+
+				Thread.sleep(10);
+			}
+
+			long startupMillis = (System.nanoTime() - start) / 1_000_000;
+			return new Measurement(startupMillis, readRssKilobytes(process.pid()));
+		} finally {
+			process.destroy();
+			process.waitFor();
+		}
+	}
+
+	private List<String> withAppArgs(List<String> command) {
+		List<String> full = new ArrayList<>(command);
+		full.addAll(appArgs);
+		return full;
+	}
+
+	//Finds the packaged jar whose name ends with the suffix. The plain jar is the one without a classifier.
+	private static Path findJar(String suffix) throws IOException {
+		if (!Files.isDirectory(TARGET)) {
+			return null;
+		}
+
+		try (Stream<Path> files = Files.list(TARGET)) {
+			// @formatter:off
+			return files
+					.filter(file -> file.getFileName().toString().startsWith("world-attractions-"))
+					.filter(file -> file.getFileName().toString().endsWith(suffix))
+					.filter(file -> suffix.equals("-exec.jar") || !file.getFileName().toString().endsWith("-exec.jar"))
+					.findFirst()
+					.orElse(null);
+			// @formatter:on
+		}
+	}
+
+	//Reads VmRSS from /proc, or returns 0 where /proc does not exist
+	private static long readRssKilobytes(long pid) throws IOException {
+		Path status = Path.of("/proc", String.valueOf(pid), "status");
+
+		if (!Files.exists(status)) {
+			return 0;
+		}
+
+		for (String line : Files.readAllLines(status)) {
+			if (line.startsWith("VmRSS:")) {
+				return Long.parseLong(line.replaceAll("\\D", ""));
+			}
+		}
+
+		return 0;
+	}
+
+	private static long median(List<Long> values) {
+		long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+		Arrays.sort(sorted);
+		return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+	}
+
+	private static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private record Measurement(long startupMillis, long rssKilobytes) {
+	}
+
+	public record ModeResult(long medianStartupMillis, long minStartupMillis, double medianRssMegabytes,
+			List<Long> startupMillis) {
+	}
+}
@@ -0,0 +1,103 @@
+package world.attractions.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+
+//Builds a synthetic catalog of cities, attractions and categories for the benchmarks. The same seed always builds the
+//same catalog, so results can be compared between runs. The cities are spread between 60 degrees south and 70 degrees
+//north, and their attractions lie a few kilometers around them.
+
+public class SyntheticWorld {
+
+	static final String[] COUNTRIES = { "Italy", "United States of America", "Brazil", "France", "Japan",
+			"Spain", "Mexico", "Egypt", "India", "Australia" };
+
+	static final String[] LANGUAGES = { "Italian", "English", "Portuguese", "French", "Japanese", "Spanish",
+			"Spanish", "Arabic", "Hindi", "English" };
+
+	static final String[] CURRENCIES = { "Euro", "Dollars", "Real", "Euro", "Yen", "Euro", "Peso", "Pound",
+			"Rupee", "Dollars" };
+
+	static final String[] WORDS = { "ancient", "park", "museum", "tower", "garden", "cathedral", "bridge",
+			"market", "palace", "beach", "river", "statue", "theater", "castle", "harbor", "temple" };
+
+	private final List<Category> categories = new ArrayList<>();
+	private final List<City> cities = new ArrayList<>();
+
+	//Builds the catalog. Each city gets attractionsPerCity attractions and categoriesPerCity of the categoryCount categories.
+	public SyntheticWorld(int cityCount, int attractionsPerCity, int categoryCount, int categoriesPerCity, long seed) {
+		Random random = new Random(seed);
+		long attractionId = 1;
+
+		for (long categoryId = 1; categoryId <= categoryCount; categoryId++) {
+			Category category = new Category();
+			category.setCategoryId(categoryId);
+			category.setCategoryName("Category " + categoryId);
+			categories.add(category);
+		}
+
+		for (long cityId = 1; cityId <= cityCount; cityId++) {
+			int country = random.nextInt(COUNTRIES.length);
+			City city = new City();
+
+			city.setCityId(cityId);
+			city.setCityName("City " + cityId);
+			city.setCountry(COUNTRIES[country]);
+			city.setLanguage(LANGUAGES[country]);
+			city.setCurrency(CURRENCIES[country]);
+			city.setSafetyLevel(String.valueOf(1 + random.nextInt(4)));
+			city.setLatitude(-60 + random.nextDouble() * 130);
+			city.setLongitude(-180 + random.nextDouble() * 360);
+
+			for (int index = 0; index < attractionsPerCity; index++) {
+				Attraction attraction = new Attraction();
+
+				attraction.setAttractionId(attractionId++);
+				attraction.setAttractionName(sentence(random, 3));
+				attraction.setDescription(sentence(random, 20));
+				attraction.setTicketPrice("Adult:$" + (5 + random.nextInt(100)) + "  Child:$" + (1 + random.nextInt(50)));
+				attraction.setVisitorsYearly(String.format("%,d", 1000 + random.nextInt(50_000_000)));
+				attraction.setLatitude(city.getLatitude() + random.nextGaussian() * 0.05);
+				//Wraps the longitude around the antimeridian
+				attraction.setLongitude((city.getLongitude() + random.nextGaussian() * 0.05 + 540) % 360 - 180);
+				attraction.setCity(city);
+				city.getAttractions().add(attraction);
+			}
+
+			for (int index = 0; index < categoriesPerCity; index++) {
+				Category category = categories.get(random.nextInt(categories.size()));
+				city.getCategories().add(category);
+				category.getCities().add(city);
+			}
+
+			cities.add(city);
+		}
+	}
+
+	public List<City> getCities() {
+		return cities;
+	}
+
+	public List<Category> getCategories() {
+		return categories;
+	}
+
+	static String sentence(Random random, int words) {
+		StringBuilder sentence = new StringBuilder();
+
+		for (int index = 0; index < words; index++) {
+			if (index > 0) {
+				sentence.append(' ');
+			}
+
+			sentence.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+
+		return sentence.toString();
+	}
+}
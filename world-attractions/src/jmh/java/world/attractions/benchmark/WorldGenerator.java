@@ -0,0 +1,239 @@
+package world.attractions.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+//Writes a synthetic catalog straight into the tables of an embedded H2 database with batched JDBC inserts, for
+//catalogs that are too large for SyntheticWorld, such as 100,000 cities with 5,000,000 attractions. Rows are written
+//as they are generated, so the memory used does not grow with the size of the catalog.
+//The same seed always writes the same catalog. City IDs start at 1 and each city's attractions have consecutive IDs,
+//so the attractions of city c are (c - 1) * attractionsPerCity + 1 to c * attractionsPerCity.
+//Category membership follows a Zipf distribution: category 1 is listed by the most cities, and the skew sets how
+//quickly the later categories fall off. The writes do not go through the CityService class, so no change events are
+//published and the derived stores have to be rebuilt afterwards.
+
+public class WorldGenerator {
+
+	//The number of attraction rows that are sent and committed at a time
+	private static final int BATCH_SIZE = 10_000;
+
+	private static final String CATEGORY_INSERT = "INSERT INTO category (category_id, category_name, version) "
+			+ "VALUES (?, ?, 0)";
+
+	private static final String CITY_INSERT = "INSERT INTO city (city_id, city_name, country, language, currency, "
+			+ "safety_level, latitude, longitude, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+	private static final String ATTRACTION_INSERT = "INSERT INTO attraction (attraction_id, attraction_name, "
+			+ "description, ticket_price, visitors_yearly, ticket_price_amount, ticket_price_currency, "
+			+ "visitors_yearly_count, latitude, longitude, version, city_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+
+	private static final String CATEGORY_LINK_INSERT = "INSERT INTO city_category (city_id, category_id) VALUES (?, ?)";
+
+	private final int cityCount;
+	private final int attractionsPerCity;
+	private final int categoryCount;
+	private final int categoriesPerCity;
+	private final double categorySkew;
+	private final long seed;
+
+	public WorldGenerator(int cityCount, int attractionsPerCity, int categoryCount, int categoriesPerCity,
+			double categorySkew, long seed) {
+		if (categoriesPerCity > categoryCount) {
+			throw new IllegalArgumentException("A city cannot list more categories than there are.");
+		}
+
+		this.cityCount = cityCount;
+		this.attractionsPerCity = attractionsPerCity;
+		this.categoryCount = categoryCount;
+		this.categoriesPerCity = categoriesPerCity;
+		this.categorySkew = categorySkew;
+		this.seed = seed;
+	}
+
+	//Writes the catalog unless the city table already has rows, as it does when a file database from an earlier run
+	//is reused. Returns true if the catalog was written.
+	public boolean generate(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			if (countRows(connection, "city") > 0) {
+				return false;
+			}
+
+			connection.setAutoCommit(false);
+			insertCategories(connection);
+			insertCities(connection);
+
+			//The IDs were set by the inserts, so the identity columns would hand them out again
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("ALTER TABLE city ALTER COLUMN city_id RESTART WITH " + (cityCount + 1));
+				statement.execute("ALTER TABLE attraction ALTER COLUMN attraction_id RESTART WITH "
+						+ ((long) cityCount * attractionsPerCity + 1));
+				statement.execute("ALTER TABLE category ALTER COLUMN category_id RESTART WITH " + (categoryCount + 1));
+			}
+
+			connection.commit();
+			return true;
+		}
+	}
+
+	//Checks that a reused database has the catalog that these options would write
+	public void check(DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			long cities = countRows(connection, "city");
+			long attractions = countRows(connection, "attraction");
+
+			if (cities != cityCount || attractions != (long) cityCount * attractionsPerCity) {
+				throw new IllegalStateException("The database has " + cities + " cities and " + attractions
+						+ " attractions, not " + cityCount + " cities with " + attractionsPerCity
+						+ " attractions each. Delete it or use the options that wrote it.");
+			}
+		}
+	}
+
+	private void insertCategories(Connection connection) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement(CATEGORY_INSERT)) {
+			for (int categoryId = 1; categoryId <= categoryCount; categoryId++) {
+				insert.setLong(1, categoryId);
+				insert.setString(2, "Category " + categoryId);
+				insert.addBatch();
+			}
+
+			insert.executeBatch();
+		}
+	}
+
+	//Writes the cities with their attractions and categories. The batches are sent in the order of the foreign keys:
+	//cities, then attractions, then category links.
+	private void insertCities(Connection connection) throws SQLException {
+		Random random = new Random(seed);
+		Zipf categories = new Zipf(categoryCount, categorySkew);
+		long attractionId = 1;
+		int pending = 0;
+		long reported = 0;
+
+		try (PreparedStatement cityInsert = connection.prepareStatement(CITY_INSERT);
+				PreparedStatement attractionInsert = connection.prepareStatement(ATTRACTION_INSERT);
+				PreparedStatement linkInsert = connection.prepareStatement(CATEGORY_LINK_INSERT)) {
+			for (long cityId = 1; cityId <= cityCount; cityId++) {
+				int country = random.nextInt(SyntheticWorld.COUNTRIES.length);
+				double latitude = -60 + random.nextDouble() * 130;
+				double longitude = -180 + random.nextDouble() * 360;
+
+				cityInsert.setLong(1, cityId);
+				cityInsert.setString(2, "City " + cityId);
+				cityInsert.setString(3, SyntheticWorld.COUNTRIES[country]);
+				cityInsert.setString(4, SyntheticWorld.LANGUAGES[country]);
+				cityInsert.setString(5, SyntheticWorld.CURRENCIES[country]);
+				cityInsert.setString(6, String.valueOf(1 + random.nextInt(4)));
+				cityInsert.setDouble(7, latitude);
+				cityInsert.setDouble(8, longitude);
+				cityInsert.addBatch();
+
+				for (int index = 0; index < attractionsPerCity; index++) {
+					int adultPrice = 5 + random.nextInt(100);
+					long visitors = 1000 + random.nextInt(50_000_000);
+
+					attractionInsert.setLong(1, attractionId++);
+					attractionInsert.setString(2, SyntheticWorld.sentence(random, 3));
+					attractionInsert.setString(3, SyntheticWorld.sentence(random, 20));
+					attractionInsert.setString(4, "Adult:$" + adultPrice + "  Child:$" + (1 + random.nextInt(50)));
+					attractionInsert.setString(5, String.format("%,d", visitors));
+					attractionInsert.setBigDecimal(6, BigDecimal.valueOf(adultPrice));
+					attractionInsert.setString(7, "USD");
+					attractionInsert.setLong(8, visitors);
+					attractionInsert.setDouble(9, latitude + random.nextGaussian() * 0.05);
+					//Wraps the longitude around the antimeridian
+					attractionInsert.setDouble(10, (longitude + random.nextGaussian() * 0.05 + 540) % 360 - 180);
+					attractionInsert.setLong(11, cityId);
+					attractionInsert.addBatch();
+				}
+
+				for (int categoryId : categories.sampleDistinct(random, categoriesPerCity)) {
+					linkInsert.setLong(1, cityId);
+					linkInsert.setLong(2, categoryId);
+					linkInsert.addBatch();
+				}
+
+				pending += attractionsPerCity + 1;
+
+				if (pending >= BATCH_SIZE || cityId == cityCount) {
+					cityInsert.executeBatch();
+					attractionInsert.executeBatch();
+					linkInsert.executeBatch();
+					connection.commit();
+					pending = 0;
+
+					if (cityId - reported >= 10_000 || cityId == cityCount) {
+						System.out.println("Wrote " + cityId + " of " + cityCount + " cities");
+						reported = cityId;
+					}
+				}
+			}
+		}
+	}
+
+	private static long countRows(Connection connection, String table) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+	//Samples the ranks 1 to n with probabilities proportional to 1 / rank^skew. A skew of 0 is uniform.
+	public static class Zipf {
+		private final double[] cumulative;
+
+		public Zipf(int n, double skew) {
+			cumulative = new double[n];
+			double sum = 0;
+
+			for (int rank = 1; rank <= n; rank++) {
+				sum += 1 / Math.pow(rank, skew);
+				cumulative[rank - 1] = sum;
+			}
+
+			for (int index = 0; index < n; index++) {
+				cumulative[index] /= sum;
+			}
+		}
+
+		public int sample(Random random) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble());
+			return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1) + 1;
+		}
+
+		//Returns count different ranks. It samples again when it draws a rank that it already returned.
+		public int[] sampleDistinct(Random random, int count) {
+			int[] ranks = new int[count];
+			int found = 0;
+
+			while (found < count) {
+				int rank = sample(random);
+
+				if (!contains(ranks, found, rank)) {
+					ranks[found++] = rank;
+				}
+			}
+
+			return ranks;
+		}
+
+		private static boolean contains(int[] ranks, int length, int rank) {
+			for (int index = 0; index < length; index++) {
+				if (ranks[index] == rank) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
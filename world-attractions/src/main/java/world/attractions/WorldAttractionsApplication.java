@@ -2,9 +2,15 @@ package world.attractions;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 //Tells JPA that this is a Spring Boot application. It enables auto-configuration and the component scan.
 @SpringBootApplication
+//Runs the @Retryable service methods again when they fail. The retry wraps the transaction, so each attempt is a new one.
+@EnableRetry
+//Runs the @Scheduled methods, such as the replica health check
+@EnableScheduling
 public class WorldAttractionsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,55 @@
+package world.attractions.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import world.attractions.controller.QueryMetricsInterceptor;
+import world.attractions.dao.QueryCounter;
+
+//Adds the application's own metrics to the ones that Actuator publishes. Actuator already times every endpoint
+//(http.server.requests) and publishes the Hikari pool, Hibernate statistics and JVM metrics. This class adds the
+//CityService timers and the SQL statement and entity load counts of each request. The metrics are scraped from
+///actuator/prometheus.
+
+@Configuration
+public class MetricsConfig {
+
+	//Times the methods that are annotated with @Timed, such as the CityService methods
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+		return new TimedAspect(meterRegistry);
+	}
+
+	//Creates the QueryCounter that counts the statements and entity loads of each request
+	@Bean
+	public QueryCounter queryCounter(@Value("${world-attractions.sql-log.sample-rate:0.01}") double sampleRate) {
+		return new QueryCounter(sampleRate);
+	}
+
+	//Registers the QueryCounter with Hibernate as the statement inspector and the session factory interceptor
+	@Bean
+	public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+		return properties -> {
+			properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+			properties.put(AvailableSettings.INTERCEPTOR, queryCounter);
+		};
+	}
+
+	//Records the counts of each request
+	@Bean
+	public WebMvcConfigurer queryMetricsConfigurer(MeterRegistry meterRegistry) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(new QueryMetricsInterceptor(meterRegistry));
+			}
+		};
+	}
+}
@@ -0,0 +1,82 @@
+package world.attractions.config;
+
+import org.springframework.aop.SpringProxy;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.projection.TargetAware;
+
+import world.attractions.controller.model.AttractionBatch;
+import world.attractions.controller.model.AttractionSearchResult;
+import world.attractions.controller.model.AttractionStatistics;
+import world.attractions.controller.model.CatalogChangeData;
+import world.attractions.controller.model.CategoryPage;
+import world.attractions.controller.model.ChangePage;
+import world.attractions.controller.model.CityBatch;
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityPage;
+import world.attractions.controller.model.CityQuery;
+import world.attractions.controller.model.CitySummary;
+import world.attractions.controller.model.ImportResult;
+import world.attractions.controller.model.NearbyAttraction;
+import world.attractions.dao.AttractionLocation;
+import world.attractions.dao.AttractionTotals;
+import world.attractions.dao.CityGrouping;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.BackfillProgress;
+import world.attractions.entity.CatalogChange;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+import world.attractions.entity.OutboxCursor;
+
+//Registers the reflection, proxy and resource hints that a native image needs and that Spring AOT cannot find by
+//itself. Jackson reads and writes the DTOs through the getters and setters that Lombok generates, Hibernate sets the
+//entity fields and calls their no-argument constructors, and Spring Data implements the projection interfaces with JDK
+//proxies. The hints are only read when the application is built with the aot or native Maven profile.
+
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.CatalogRuntimeHints.class)
+// @formatter:off
+@RegisterReflectionForBinding({
+		CityData.class, CityData.CityAttraction.class, CityData.CityCategory.class, CityPage.class, CityBatch.class,
+		CityQuery.class, AttractionBatch.class, AttractionBatch.BatchAttraction.class, AttractionSearchResult.class,
+		AttractionSearchResult.AttractionHit.class, ImportResult.class, ImportResult.ImportChunk.class,
+		ImportResult.RejectedRow.class, CatalogChangeData.class, ChangePage.class, NearbyAttraction.class,
+		AttractionStatistics.class, CategoryPage.class })
+// @formatter:on
+public class NativeHintsConfig {
+
+	//Adds the hints for the entities, the projections and the Flyway migrations
+	static class CatalogRuntimeHints implements RuntimeHintsRegistrar {
+
+		private static final Class<?>[] ENTITIES = { City.class, Attraction.class, Category.class, CatalogChange.class,
+				OutboxCursor.class, BackfillProgress.class };
+
+		private static final Class<?>[] PROJECTIONS = { CitySummary.class, AttractionLocation.class, CityGrouping.class,
+				AttractionTotals.class };
+
+		@Override
+		public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+			for (Class<?> entity : ENTITIES) {
+				hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+						MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+			}
+
+			//Spring Data adds the same interfaces to every projection proxy that it creates
+			for (Class<?> projection : PROJECTIONS) {
+				hints.proxies().registerJdkProxy(TypeReference.of(projection), TypeReference.of(TargetAware.class),
+						TypeReference.of(SpringProxy.class), TypeReference.of(DecoratingProxy.class));
+				hints.reflection().registerType(projection, MemberCategory.INVOKE_PUBLIC_METHODS);
+			}
+
+			//Flyway finds the migration scripts on the classpath, so the native image has to include them
+			hints.resources().registerPattern("db/migration/*");
+			hints.resources().registerPattern("db/vendor/*/*");
+		}
+	}
+}
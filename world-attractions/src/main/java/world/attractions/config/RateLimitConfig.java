@@ -0,0 +1,57 @@
+package world.attractions.config;
+
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import world.attractions.controller.RateLimitInterceptor;
+import world.attractions.service.RateLimiter;
+
+//Limits how often each client can call the expensive read endpoints. Each rule in world-attractions.rate-limit.rules
+//gets its own RateLimiter and interceptor on its paths. A rule without a burst can send limit requests at once.
+
+@Configuration
+@ConditionalOnProperty(name = "world-attractions.rate-limit.enabled", havingValue = "true")
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+	//Registers an interceptor for each rule and counts the requests that it refuses
+	@Bean
+	public WebMvcConfigurer rateLimitConfigurer(RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				Set<String> trustedProxies = Set.copyOf(rateLimitProperties.getTrustedProxies());
+
+				for (RateLimitProperties.Rule rule : rateLimitProperties.getRules()) {
+					//An interceptor without path patterns would limit every endpoint
+					if (rule.getPaths().isEmpty()) {
+						throw new IllegalArgumentException("Rate limit rule " + rule.getName() + " has no paths.");
+					}
+
+					int burst = rule.getBurst() > 0 ? rule.getBurst() : rule.getLimit();
+					RateLimiter rateLimiter = new RateLimiter(rule.getLimit(), rule.getPeriod(), burst,
+							rateLimitProperties.getMaxClients());
+
+					// @formatter:off
+					Counter limited = Counter.builder("world.attractions.rate.limited")
+							.description("Requests refused with a 429 response")
+							.tag("rule", Objects.requireNonNullElse(rule.getName(), "unnamed"))
+							.register(meterRegistry);
+					// @formatter:on
+
+					registry.addInterceptor(new RateLimitInterceptor(rateLimiter, rateLimitProperties.getClientHeader(),
+							trustedProxies, limited)).addPathPatterns(rule.getPaths());
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,49 @@
+package world.attractions.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+//The per-client request quotas of the expensive read endpoints. They are set under world-attractions.rate-limit.
+//Each rule has its own buckets, so a client that used up the quota of one rule can still call the endpoints of another.
+
+@ConfigurationProperties("world-attractions.rate-limit")
+@Data
+public class RateLimitProperties {
+	private boolean enabled;
+
+	//The request header that identifies the client, such as an API key that a gateway sets. Any client can send the
+	//header with any value, so it is only used on requests whose remote address is one of the trusted proxies, which
+	//must replace the header that the client sent. The remote address is used when it is not set, no trusted proxy is
+	//set, or a request does not have it. Behind a proxy, server.forward-headers-strategy makes the remote address the
+	//client's instead of the proxy's, so it is used instead of a client header, not with it.
+	private String clientHeader;
+
+	//The addresses of the gateways or proxies that set the client header
+	private Set<String> trustedProxies = new HashSet<>();
+
+	//The most clients whose buckets are held for each rule
+	private long maxClients = 100_000;
+
+	private List<Rule> rules = new ArrayList<>();
+
+	@Data
+	public static class Rule {
+		//The name of the rule in the world.attractions.rate.limited metric
+		private String name;
+
+		//The path patterns of the GET requests that the rule limits, such as /category/*
+		private List<String> paths = new ArrayList<>();
+
+		//A client can send limit requests every period, and up to burst requests at once after it has not sent any
+		private int limit;
+		private Duration period = Duration.ofSeconds(1);
+		private int burst;
+	}
+}
@@ -0,0 +1,38 @@
+package world.attractions.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+//The read replicas that the read-only transactions are sent to. They are set under world-attractions.replicas in the
+//replicas profile.
+
+@ConfigurationProperties("world-attractions.replicas")
+@Data
+public class ReplicaProperties {
+	private boolean enabled;
+	private List<Node> nodes = new ArrayList<>();
+
+	//How long the reads of a client go to the primary after it writes, so it sees its own write even if the replicas
+	//are behind
+	private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+	//How long a request waits for a replica connection before it is sent to the primary. It is short so a replica that
+	//is down does not hold requests until the health check ejects it.
+	private Duration connectionTimeout = Duration.ofSeconds(2);
+
+	//A MySQL replica that is further behind its source than this is ejected. No lag check is done when it is not set.
+	private Duration maxLag;
+
+	@Data
+	public static class Node {
+		private String name;
+		private String url;
+		private String username;
+		private String password;
+	}
+}
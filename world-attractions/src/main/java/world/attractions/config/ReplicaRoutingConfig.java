@@ -0,0 +1,95 @@
+package world.attractions.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import world.attractions.controller.ReadYourWritesInterceptor;
+import world.attractions.dao.ReplicaRoutingDataSource;
+
+//Sends the read-only transactions of the CityService class and the DAO interfaces to read replicas, and everything else
+//to the primary that spring.datasource points to. It is turned on by the replicas profile, which lists the replicas.
+//Each replica has its own Hikari pool with the same settings as the primary, except for a shorter connection timeout.
+
+@Configuration
+@ConditionalOnProperty(name = "world-attractions.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+	//Creates the pool of the primary from the spring.datasource and spring.datasource.hikari properties, like Spring Boot
+	//does when there is only one data source
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+		HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class)
+				.build();
+
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	//Creates a pool for each replica and the data source that chooses between them
+	@Bean
+	public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+			ReplicaProperties replicaProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+
+		for (ReplicaProperties.Node node : replicaProperties.getNodes()) {
+			HikariDataSource replica = new HikariDataSource();
+
+			primaryDataSource.copyStateTo(replica);
+			replica.setPoolName(node.getName());
+			replica.setJdbcUrl(node.getUrl());
+			replica.setUsername(node.getUsername());
+			replica.setPassword(node.getPassword());
+			replica.setReadOnly(true);
+			replica.setConnectionTimeout(replicaProperties.getConnectionTimeout().toMillis());
+			//Starts the pool even if the replica is down, so the health check can eject it instead of startup failing
+			replica.setInitializationFailTimeout(-1);
+
+			if (Objects.isNull(replica.getMetricsTrackerFactory()) && Objects.isNull(replica.getMetricRegistry())) {
+				meterRegistry.ifAvailable(replica::setMetricRegistry);
+			}
+
+			replicas.put(node.getName(), replica);
+		}
+
+		return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaProperties.getMaxLag());
+	}
+
+	//The data source that JPA, Flyway and the JdbcTemplate use. It gets the real connection at the first statement, after
+	//the transaction has been marked read-only or not.
+	@Bean
+	@Primary
+	public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+
+	//Pins the reads of clients that just wrote to the primary
+	@Bean
+	public WebMvcConfigurer readYourWritesConfigurer(ReplicaProperties replicaProperties) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(new ReadYourWritesInterceptor(replicaProperties.getReadYourWritesWindow()));
+			}
+		};
+	}
+}
@@ -0,0 +1,54 @@
+package world.attractions.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import lombok.extern.slf4j.Slf4j;
+
+//Runs each request and each asynchronous task on its own virtual thread instead of a thread from Tomcat's pool. A
+//request that waits on JDBC then parks its virtual thread instead of holding a platform thread. The number of requests
+//that use the database at the same time is limited by the Hikari pool instead of the Tomcat pool.
+//It is turned on by the virtual-threads profile and needs Java 21 at runtime.
+
+@Configuration
+@ConditionalOnProperty(name = "world-attractions.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+	//Creates the executor that starts a new virtual thread for each task. It is looked up by reflection so the
+	//application still compiles with Java 17.
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService virtualThreadExecutor() {
+		try {
+			ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+
+			log.info("Running requests on virtual threads");
+			return executor;
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later. This is Java "
+					+ Runtime.version().feature() + ".", e);
+		}
+	}
+
+	//Runs Tomcat's request processing on the virtual thread executor
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+		return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+	}
+
+	//Runs Spring MVC asynchronous work, such as the /city/export stream, on the virtual thread executor
+	@Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+		return new TaskExecutorAdapter(virtualThreadExecutor);
+	}
+}
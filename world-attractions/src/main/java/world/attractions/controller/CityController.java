@@ -1,24 +1,54 @@
 package world.attractions.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.AttractionBatch;
+import world.attractions.controller.model.AttractionSearchResult;
+import world.attractions.controller.model.AttractionStatistics;
+import world.attractions.controller.model.CityBatch;
 import world.attractions.controller.model.CityData;
 import world.attractions.controller.model.CityData.CityAttraction;
 import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.controller.model.ChangePage;
+import world.attractions.controller.model.CityPage;
+import world.attractions.controller.model.CityQuery;
+import world.attractions.controller.model.ImportResult;
+import world.attractions.controller.model.NearbyAttraction;
+import world.attractions.dao.ReplicaRoutingDataSource;
+import world.attractions.service.AttractionGeoIndex;
+import world.attractions.service.AttractionSearchIndex;
+import world.attractions.service.CatalogOutbox;
+import world.attractions.service.CatalogStatistics;
+import world.attractions.service.CatalogVersionTracker;
+import world.attractions.service.CityCache;
+import world.attractions.service.CityImportService;
+import world.attractions.service.CityReadModel.CityJson;
 import world.attractions.service.CityService;
+import world.attractions.service.SingleFlight;
 
 //This is the controller class. The HTTP requests are mapped to this class and responses 
 //are sent back to the client.
@@ -28,10 +58,46 @@ import world.attractions.service.CityService;
 @Slf4j
 public class CityController {
 
+	//The media type of the newline-delimited JSON that is returned by the /city/export endpoint
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+	//The number of cities that are read from the database at a time when writing all of the cities
+	private static final int EXPORT_CHUNK_SIZE = 200;
+
 	//Injects the CityService bean into this field
 	@Autowired
 	private CityService cityService;
 
+	@Autowired
+	private CityImportService cityImportService;
+
+	@Autowired
+	private CityCache cityCache;
+
+	@Autowired
+	private AttractionSearchIndex attractionSearchIndex;
+
+	@Autowired
+	private AttractionGeoIndex attractionGeoIndex;
+
+	//Provides the ETag of the list endpoints
+	@Autowired
+	private CatalogVersionTracker catalogVersionTracker;
+
+	@Autowired
+	private CatalogOutbox catalogOutbox;
+
+	@Autowired
+	private CatalogStatistics catalogStatistics;
+
+	//Share the result of a filtered list between the identical requests that arrive while it is read. The keys hold the
+	//catalog ETag, so a request that arrives after a write does not get the list that was read before it.
+	private final SingleFlight<CityListKey, List<Map<String, Object>>> cityListFlights = new SingleFlight<>();
+	private final SingleFlight<CategoryListKey, Object> categoryListFlights = new SingleFlight<>();
+
+	//Shares the JSON of the unfiltered city list in the same way. The key is the catalog ETag.
+	private final SingleFlight<String, byte[]> allCitiesFlights = new SingleFlight<>();
+
 	//Maps POST requests to the method. The requests are sent to /city. 
 	//The method creates/inserts a city's data into the database by calling the saveCity() method in the CityService class.
 	@PostMapping("/city")
@@ -51,18 +117,103 @@ public class CityController {
 
 	//Maps a GET request to the method. The request is sent to /city.
 	//The method retrieves all city data from the database by calling the retrieveAllCities() method in the CityService class.
+	//The optional country, language, safetyLevel, category, sort and fields parameters filter and sort the cities and select
+	//their fields by calling the retrieveCities() method in the CityService class instead.
+	//Identical requests that arrive while the cities are read share one read.
+	//Without parameters, the JSON is written from the City entities by calling the retrieveAllCitiesJson() method in the
+	//CityService class, so no CityData objects are built, and the requests that share the read share one copy of the
+	//bytes. /city/export streams the cities instead for clients that do not want the whole list held in memory.
+	//A request whose If-None-Match header has the current catalog ETag gets a 304 response without reading the cities.
 	@GetMapping("/city")
-	public List<CityData> retrieveAllCities() {
-		log.info("Retrieving all cities");
-		return cityService.retrieveAllCities();
+	public ResponseEntity<?> retrieveAllCities(CityQuery query, WebRequest webRequest) {
+		log.info("Retrieving all cities {}", query);
+		String etag = catalogVersionTracker.getETag();
+
+		if (webRequest.checkNotModified(etag)) {
+			return null;
+		}
+
+		if (query.hasParameters()) {
+			return ResponseEntity.ok(cityListFlights.execute(new CityListKey(etag, query.copy()),
+					() -> cityService.retrieveCities(query)));
+		}
+
+		byte[] json = allCitiesFlights.execute(etag, () -> cityService.retrieveAllCitiesJson(EXPORT_CHUNK_SIZE));
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+	}
+
+	//Maps GET requests with an ids parameter to the method. The requests are sent to /city?ids={cityId},{cityId}.
+	//The method retrieves the cities in the order of the IDs by calling the retrieveCitiesByIds() method in the CityService class.
+	//The IDs of cities that do not exist are returned in missingIds.
+	@GetMapping(value = "/city", params = "ids")
+	public CityBatch retrieveCitiesByIds(@RequestParam List<Long> ids, WebRequest webRequest) {
+		log.info("Retrieving cities with IDs={}", ids);
+
+		if (webRequest.checkNotModified(catalogVersionTracker.getETag())) {
+			return null;
+		}
+
+		return cityService.retrieveCitiesByIds(ids);
+	}
+
+	//Maps POST requests to the method. The requests are sent to /city/import with one city per line in the request body.
+	//The method creates the cities with their attractions and categories in chunks by calling the importCities() method in the CityImportService class.
+	@PostMapping(value = "/city/import", consumes = { "application/x-ndjson", MediaType.APPLICATION_JSON_VALUE })
+	public ImportResult importCities(InputStream body, @RequestParam(required = false) Integer batchSize) throws IOException {
+		log.info("Importing cities in batches of {}", batchSize);
+		return cityImportService.importCities(body, batchSize);
+	}
+
+	//Maps GET requests with a pageSize parameter to the method. The requests are sent to /city?pageSize={pageSize}&pageToken={pageToken}.
+	//The method retrieves one page of cities by calling the retrieveCityPage() method in the CityService class. The nextPageToken
+	//in the response is sent as the pageToken to retrieve the next page.
+	@GetMapping(value = "/city", params = "pageSize")
+	public CityPage retrieveCityPage(@RequestParam int pageSize, @RequestParam(required = false) Long pageToken,
+			WebRequest webRequest) {
+		log.info("Retrieving {} cities after page token {}", pageSize, pageToken);
+
+		if (webRequest.checkNotModified(catalogVersionTracker.getETag())) {
+			return null;
+		}
+
+		return cityService.retrieveCityPage(pageToken, pageSize);
+	}
+
+	//Maps a GET request to the method. The request is sent to /city/export.
+	//The method writes every city as one JSON object per line while the cities are read from the database, so the
+	//whole city table never has to be held in memory.
+	@GetMapping("/city/export")
+	public ResponseEntity<StreamingResponseBody> exportAllCities() {
+		log.info("Exporting all cities");
+
+		StreamingResponseBody body = withRequestRoute(
+				outputStream -> cityService.exportAllCities(EXPORT_CHUNK_SIZE, outputStream));
+
+		return ResponseEntity.ok().contentType(NDJSON).body(body);
 	}
 
 	//Maps GET requests to the method. The requests are sent to /city/{cityId}. 
 	//The method retrieves a city's data from the database by calling the retrieveCityById() method in the CityService class.
+	//The JSON is returned as it is stored in the read model, so it is not serialized again. Its ETag is a hash of the
+	//JSON that is stored with it. The If-None-Match header is checked against the stored ETag first, so a matching
+	//request gets a 304 response without the city being loaded or its JSON being copied. Only a city that is not held
+	//is loaded and hashed before the check.
 	@GetMapping("/city/{cityId}")
-	public CityData retrieveCityById(@PathVariable Long cityId) {
+	public ResponseEntity<byte[]> retrieveCityById(@PathVariable Long cityId, WebRequest webRequest) {
 		log.info("Retrieving city with ID={}", cityId);
-		return cityService.retrieveCityById(cityId);
+		Optional<String> heldEtag = cityService.retrieveHeldCityEtag(cityId);
+
+		if (heldEtag.isPresent() && webRequest.checkNotModified(heldEtag.get())) {
+			return null;
+		}
+
+		CityJson cityJson = cityService.retrieveCityJsonById(cityId);
+
+		if (webRequest.checkNotModified(cityJson.etag())) {
+			return null;
+		}
+
+		return ResponseEntity.ok().eTag(cityJson.etag()).contentType(MediaType.APPLICATION_JSON).body(cityJson.toBytes());
 	}
 
 	//Maps a DELETE request to the method. The request is sent to /city.
@@ -116,6 +267,84 @@ public class CityController {
 		return cityService.retrieveAttractionById(cityId, attractionId);
 	}
 	
+	//Maps GET requests with a currency parameter to the method. The requests are sent to /attraction?currency={currency}&maxPrice={maxPrice}.
+	//The method retrieves the attractions priced between minPrice and maxPrice in the currency, cheapest first, by calling the
+	//retrieveAttractionsByPrice() method in the CityService class.
+	@GetMapping(value = "/attraction", params = "currency")
+	public List<CityAttraction> retrieveAttractionsByPrice(@RequestParam String currency,
+			@RequestParam(defaultValue = "0") BigDecimal minPrice,
+			@RequestParam BigDecimal maxPrice,
+			@RequestParam(defaultValue = "50") int limit) {
+		log.info("Retrieving attractions priced between {} and {} {}", minPrice, maxPrice, currency);
+		return cityService.retrieveAttractionsByPrice(currency, minPrice, maxPrice, limit);
+	}
+
+	//Maps GET requests with an ids parameter to the method. The requests are sent to /attraction?ids={attractionId},{attractionId}.
+	//The method retrieves the attractions in the order of the IDs, each with its city ID, by calling the retrieveAttractionsByIds()
+	//method in the CityService class. The IDs of attractions that do not exist are returned in missingIds.
+	@GetMapping(value = "/attraction", params = "ids")
+	public AttractionBatch retrieveAttractionsByIds(@RequestParam List<Long> ids, WebRequest webRequest) {
+		log.info("Retrieving attractions with IDs={}", ids);
+
+		if (webRequest.checkNotModified(catalogVersionTracker.getETag())) {
+			return null;
+		}
+
+		return cityService.retrieveAttractionsByIds(ids);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /attraction/most-visited.
+	//The method retrieves the attractions with the most yearly visitors by calling the retrieveMostVisitedAttractions() method in the CityService class.
+	@GetMapping("/attraction/most-visited")
+	public List<CityAttraction> retrieveMostVisitedAttractions(@RequestParam(defaultValue = "10") int limit) {
+		log.info("Retrieving the {} most visited attractions", limit);
+		return cityService.retrieveMostVisitedAttractions(limit);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /attraction/search?text={text}.
+	//The method searches the attraction names and descriptions in the search index. The optional country, language, currency,
+	//safetyLevel and category parameters filter the hits. The response ranks the top hits and counts the matches for each facet.
+	@GetMapping("/attraction/search")
+	public AttractionSearchResult searchAttractions(@RequestParam(required = false) String text,
+			@RequestParam(required = false) String country,
+			@RequestParam(required = false) String language,
+			@RequestParam(required = false) String currency,
+			@RequestParam(required = false) String safetyLevel,
+			@RequestParam(required = false) String category,
+			@RequestParam(defaultValue = "10") int limit) throws IOException {
+		log.info("Searching attractions for \"{}\"", text);
+
+		Map<String, String> filters = new HashMap<>();
+		filters.put(AttractionSearchIndex.COUNTRY, country);
+		filters.put(AttractionSearchIndex.LANGUAGE, language);
+		filters.put(AttractionSearchIndex.CURRENCY, currency);
+		filters.put(AttractionSearchIndex.SAFETY_LEVEL, safetyLevel);
+		filters.put(AttractionSearchIndex.CATEGORY, category);
+
+		return attractionSearchIndex.search(text, filters, limit);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /attraction/nearby?latitude={latitude}&longitude={longitude}&radiusKm={radiusKm}.
+	//The method retrieves the attractions within the radius of the location, nearest first, from the location index in the AttractionGeoIndex class.
+	@GetMapping("/attraction/nearby")
+	public List<NearbyAttraction> retrieveNearbyAttractions(@RequestParam double latitude,
+			@RequestParam double longitude,
+			@RequestParam double radiusKm,
+			@RequestParam(defaultValue = "50") int limit) {
+		log.info("Retrieving attractions within {} km of {}, {}", radiusKm, latitude, longitude);
+		return attractionGeoIndex.findWithinRadius(latitude, longitude, radiusKm, limit);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /attraction/nearest?latitude={latitude}&longitude={longitude}.
+	//The method retrieves the attractions nearest to the location, nearest first, from the location index in the AttractionGeoIndex class.
+	@GetMapping("/attraction/nearest")
+	public List<NearbyAttraction> retrieveNearestAttractions(@RequestParam double latitude,
+			@RequestParam double longitude,
+			@RequestParam(defaultValue = "10") int limit) {
+		log.info("Retrieving the {} attractions nearest to {}, {}", limit, latitude, longitude);
+		return attractionGeoIndex.findNearest(latitude, longitude, limit);
+	}
+
 	//Maps DELETE requests to the method. The requests are sent to /attraction/{attractionId}.
 	//The method deletes an attraction's data from the database by calling the deleteAttractionById() method in the CityService class.
 	@DeleteMapping("/attraction/{attractionId}")
@@ -145,9 +374,111 @@ public class CityController {
 	
 	//Maps GET requests to the method. The requests are sent to /category/{categoryId}.
 	//The method retrieves all of the cities in a particular category from the database. This is done by calling the retrieveAllCitiesInCategory() method in the CityService class. 
+	//With the optional pageSize parameter, one page of cities after the city with the ID in the optional pageToken is
+	//returned by calling the retrieveCategoryPage() method in the CityService class. The nextPageToken in the response is
+	//sent as the pageToken to retrieve the next page.
+	//The optional country, language, safetyLevel, category, sort and fields parameters filter and sort the cities and select
+	//their fields by calling the retrieveCitiesInCategory() method in the CityService class instead.
+	//Identical requests that arrive while the cities are read share one read.
+	//A request whose If-None-Match header has the current catalog ETag gets a 304 response without reading the cities.
 	@GetMapping("/category/{categoryId}")
-	public List<CityData> retrieveAllCitiesInCategory(@PathVariable Long categoryId) {
-		log.info("Retrieving all cities in category with ID={}", categoryId);
-		return cityService.retrieveAllCitiesInCategory(categoryId);
+	public Object retrieveAllCitiesInCategory(@PathVariable Long categoryId,
+			@RequestParam(required = false) Integer pageSize,
+			@RequestParam(required = false) Long pageToken, CityQuery query, WebRequest webRequest) {
+		log.info("Retrieving all cities in category with ID={} {}", categoryId, query);
+		String etag = catalogVersionTracker.getETag();
+
+		if (webRequest.checkNotModified(etag)) {
+			return null;
+		}
+
+		CategoryListKey key = new CategoryListKey(etag, categoryId, pageSize, pageToken, query.copy());
+
+		return categoryListFlights.execute(key, () -> {
+			if (query.hasParameters()) {
+				return cityService.retrieveCitiesInCategory(categoryId, query, pageToken, pageSize);
+			}
+
+			if (Objects.nonNull(pageSize)) {
+				return cityService.retrieveCategoryPage(categoryId, pageToken, pageSize);
+			}
+
+			return cityService.retrieveAllCitiesInCategory(categoryId);
+		});
+	}
+
+	//Maps GET requests to the method. The requests are sent to /cache/stats.
+	//The method returns the size, hit, miss and eviction counts of the city and attraction caches.
+	@GetMapping("/cache/stats")
+	public Map<String, Map<String, Object>> retrieveCacheStatistics() {
+		log.info("Retrieving cache statistics");
+		return cityCache.getStatistics();
+	}
+
+	//Maps GET requests to the method. The requests are sent to /stats/country.
+	//The method returns the attraction count, total yearly visitors and average ticket prices of every country from the
+	//aggregates that the CatalogStatistics class keeps up to date.
+	@GetMapping("/stats/country")
+	public List<AttractionStatistics> retrieveCountryStatistics() {
+		log.info("Retrieving the statistics of all countries");
+		return catalogStatistics.retrieveCountryStatistics();
+	}
+
+	//Maps GET requests to the method. The requests are sent to /stats/country/{country}.
+	//The method returns the aggregates of one country without reading the database.
+	@GetMapping("/stats/country/{country}")
+	public AttractionStatistics retrieveCountryStatistics(@PathVariable String country) {
+		log.info("Retrieving the statistics of country {}", country);
+		return catalogStatistics.retrieveCountryStatistics(country);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /stats/category.
+	//The method returns the aggregates of every category from the CatalogStatistics class.
+	@GetMapping("/stats/category")
+	public List<AttractionStatistics> retrieveCategoryStatistics() {
+		log.info("Retrieving the statistics of all categories");
+		return catalogStatistics.retrieveCategoryStatistics();
+	}
+
+	//Maps GET requests to the method. The requests are sent to /stats/category/{categoryId}.
+	//The method returns the aggregates of the attractions of the cities in one category without reading the database.
+	@GetMapping("/stats/category/{categoryId}")
+	public AttractionStatistics retrieveCategoryStatistics(@PathVariable Long categoryId) {
+		log.info("Retrieving the statistics of category with ID={}", categoryId);
+		return catalogStatistics.retrieveCategoryStatistics(categoryId);
+	}
+
+	//Maps GET requests to the method. The requests are sent to /changes?since={sequenceNumber}.
+	//The method retrieves the committed catalog changes after the cursor by calling the retrieveChangesSince() method in the CatalogOutbox class.
+	//A consumer starts with since=0 and passes the nextCursor of each response as since in the next request.
+	@GetMapping("/changes")
+	public ChangePage retrieveChangesSince(@RequestParam(defaultValue = "0") long since,
+			@RequestParam(defaultValue = "100") int limit) {
+		log.info("Retrieving up to {} catalog changes after sequence number {}", limit, since);
+		return catalogOutbox.retrieveChangesSince(since, limit);
+	}
+
+	//The requests that share a read of GET /city
+	private record CityListKey(String etag, CityQuery query) {
+	}
+
+	//The requests that share a read of GET /category/{categoryId}
+	private record CategoryListKey(String etag, Long categoryId, Integer pageSize, Long pageToken, CityQuery query) {
+	}
+
+	//Writes the body on the async thread with the replica routing of the request, so it reads from the replica that the
+	//ETag was read from, or from the primary if the request was pinned to it
+	private static StreamingResponseBody withRequestRoute(StreamingResponseBody body) {
+		ReplicaRoutingDataSource.Route route = ReplicaRoutingDataSource.captureRoute();
+
+		return outputStream -> {
+			ReplicaRoutingDataSource.restoreRoute(route);
+
+			try {
+				body.writeTo(outputStream);
+			} finally {
+				ReplicaRoutingDataSource.unpin();
+			}
+		};
 	}
 }
@@ -0,0 +1,57 @@
+package world.attractions.controller;
+
+import java.util.Objects;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import world.attractions.dao.QueryCounter;
+
+//Records how many SQL statements and entity loads each request needed, tagged with the HTTP method and the URI pattern
+//of the endpoint. A request whose statement count grows with the size of its result has an N+1 query.
+//The work that a StreamingResponseBody does after the handler returns, such as the /city/export stream, runs on
+//another thread and is not counted.
+
+public class QueryMetricsInterceptor implements HandlerInterceptor {
+
+	private final MeterRegistry meterRegistry;
+
+	public QueryMetricsInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		QueryCounter.reset();
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = Objects.isNull(pattern) ? "UNKNOWN" : pattern.toString();
+
+		summary("world.attractions.request.statements", "SQL statements per request", request, uri)
+				.record(QueryCounter.getStatements());
+		summary("world.attractions.request.entity.loads", "Entities loaded per request", request, uri)
+				.record(QueryCounter.getEntityLoads());
+
+		QueryCounter.clear();
+	}
+
+	private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+		// @formatter:off
+		return DistributionSummary.builder(name)
+				.description(description)
+				.tag("method", request.getMethod())
+				.tag("uri", uri)
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		// @formatter:on
+	}
+}
@@ -0,0 +1,71 @@
+package world.attractions.controller;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import world.attractions.service.RateLimiter;
+
+//Refuses the GET requests of a client that has used up its quota with a 429 response. The Retry-After header tells the
+//client how many seconds to wait before its next request is accepted. Other methods are not limited.
+
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+	private final RateLimiter rateLimiter;
+	private final String clientHeader;
+	private final Set<String> trustedProxies;
+	private final Counter limited;
+
+	public RateLimitInterceptor(RateLimiter rateLimiter, String clientHeader, Set<String> trustedProxies,
+			Counter limited) {
+		this.rateLimiter = rateLimiter;
+		this.clientHeader = clientHeader;
+		this.trustedProxies = trustedProxies;
+		this.limited = limited;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws IOException {
+		if (!request.getMethod().equals("GET")) {
+			return true;
+		}
+
+		long waitNanos = rateLimiter.tryAcquire(client(request));
+
+		if (waitNanos == 0) {
+			return true;
+		}
+
+		limited.increment();
+
+		long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
+				"Too many requests. Retry after " + retryAfterSeconds + " seconds.");
+
+		return false;
+	}
+
+	//Returns the value of the client header, or the remote address if there is no client header. The header is only
+	//read from a trusted proxy, because a client that sends its own could pick any bucket and never be limited.
+	private String client(HttpServletRequest request) {
+		if (Objects.nonNull(clientHeader) && trustedProxies.contains(request.getRemoteAddr())) {
+			String client = request.getHeader(clientHeader);
+
+			if (Objects.nonNull(client) && !client.isBlank()) {
+				return client;
+			}
+		}
+
+		return request.getRemoteAddr();
+	}
+}
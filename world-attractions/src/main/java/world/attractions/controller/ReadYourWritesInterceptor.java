@@ -0,0 +1,85 @@
+package world.attractions.controller;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import world.attractions.dao.ReplicaRoutingDataSource;
+
+//Sends the reads of a client that just wrote to the primary, so it sees its own write while the replicas catch up.
+//A request that can write sets a cookie with the time until which the client reads from the primary. Requests that
+//carry the cookie before that time are pinned to the primary. Every other request sticks to one replica, so the ETag
+//and the data that it reads come from the same replica.
+
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+	public static final String COOKIE_NAME = "read-primary-until";
+
+	private final Duration window;
+
+	public ReadYourWritesInterceptor(Duration window) {
+		this.window = window;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		long now = System.currentTimeMillis();
+
+		if (isWrite(request)) {
+			Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(now + window.toMillis()));
+			cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+
+			response.addCookie(cookie);
+			ReplicaRoutingDataSource.pinToPrimary();
+		} else if (readPrimaryUntil(request) > now) {
+			ReplicaRoutingDataSource.pinToPrimary();
+		} else {
+			ReplicaRoutingDataSource.stickToOneReplica();
+		}
+
+		return true;
+	}
+
+	//Clears the routing of the request thread when a streamed response continues on another thread
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		ReplicaRoutingDataSource.unpin();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		ReplicaRoutingDataSource.unpin();
+	}
+
+	private boolean isWrite(HttpServletRequest request) {
+		String method = request.getMethod();
+		return !(method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS"));
+	}
+
+	//Returns the time in the cookie, or 0 if there is no cookie or it cannot be read
+	private long readPrimaryUntil(HttpServletRequest request) {
+		if (Objects.isNull(request.getCookies())) {
+			return 0;
+		}
+
+		for (Cookie cookie : request.getCookies()) {
+			if (cookie.getName().equals(COOKIE_NAME)) {
+				try {
+					return Long.parseLong(cookie.getValue());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+
+		return 0;
+	}
+}
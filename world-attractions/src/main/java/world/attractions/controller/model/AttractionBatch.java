@@ -0,0 +1,27 @@
+package world.attractions.controller.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import world.attractions.controller.model.CityData.CityAttraction;
+
+//A class that holds the attractions that were requested by ID, in the order of the requested IDs, each with the ID of
+//its city. The IDs of the attractions that do not exist are listed in missingIds instead of failing the request.
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttractionBatch {
+	private List<BatchAttraction> attractions;
+	private List<Long> missingIds;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class BatchAttraction {
+		private Long cityId;
+		private CityAttraction attraction;
+	}
+}
@@ -0,0 +1,32 @@
+package world.attractions.controller.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that holds the result of an attraction search. The hits are ranked by score and the facets count the
+//matching attractions for each country, language, currency, safety level and category.
+
+@Data
+@NoArgsConstructor
+public class AttractionSearchResult {
+	private long totalHits;
+	private List<AttractionHit> hits = new ArrayList<>();
+	private Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class AttractionHit {
+		private Long attractionId;
+		private Long cityId;
+		private String cityName;
+		private String attractionName;
+		private float score;
+	}
+}
@@ -0,0 +1,26 @@
+package world.attractions.controller.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that holds the aggregates of the attractions in one country or one category. A city's attractions are counted
+//in its country and in each of its categories. The total yearly visitors only add up the attractions that have a
+//numeric visitor count. Prices in different currencies cannot be averaged together, so the average ticket price is
+//given per currency.
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttractionStatistics {
+	private String country;
+	private Long categoryId;
+	private String categoryName;
+	private long cityCount;
+	private long attractionCount;
+	private long totalVisitorsYearly;
+	private Map<String, BigDecimal> averageTicketPrices;
+}
@@ -0,0 +1,45 @@
+package world.attractions.controller.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import world.attractions.entity.CatalogChange;
+
+//A class that holds one change from the catalog_change outbox. The sequenceNumber is the cursor that a consumer passes
+//back to read the changes after it.
+
+@Data
+@NoArgsConstructor
+public class CatalogChangeData {
+	private Long changeId;
+	private Long sequenceNumber;
+	private String changeType;
+	private Long cityId;
+	private Long attractionId;
+	private Long categoryId;
+	private Long previousCityId;
+	private List<Long> attractionIds;
+	private Instant createdAt;
+
+	//Assigns the values of the CatalogChange class fields to the CatalogChangeData class fields.
+	public CatalogChangeData(CatalogChange change) {
+		changeId = change.getChangeId();
+		sequenceNumber = change.getSequenceNumber();
+		changeType = change.getChangeType();
+		cityId = change.getCityId();
+		attractionId = change.getAttractionId();
+		categoryId = change.getCategoryId();
+		previousCityId = change.getPreviousCityId();
+		createdAt = change.getCreatedAt();
+
+		if (Objects.isNull(change.getAttractionIds()) || change.getAttractionIds().isEmpty()) {
+			attractionIds = List.of();
+		} else {
+			attractionIds = Arrays.stream(change.getAttractionIds().split(",")).map(Long::valueOf).toList();
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package world.attractions.controller.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that holds one page of the cities in a category. The nextPageToken is passed back as the pageToken to retrieve
+//the next page. It is null when there are no more cities.
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryPage {
+	private List<CitySummary> cities;
+	private Long nextPageToken;
+}
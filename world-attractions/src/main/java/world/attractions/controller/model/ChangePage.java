@@ -0,0 +1,20 @@
+package world.attractions.controller.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that holds the catalog changes after a cursor. The nextCursor is passed back as the since parameter to read the
+//changes after these. If resyncRequired is true, changes after the cursor were already deleted by the retention job, so
+//the consumer has to reload the catalog and continue from nextCursor.
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangePage {
+	private List<CatalogChangeData> changes;
+	private Long nextCursor;
+	private boolean resyncRequired;
+}
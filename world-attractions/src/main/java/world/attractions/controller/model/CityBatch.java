@@ -0,0 +1,18 @@
+package world.attractions.controller.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that holds the cities that were requested by ID, in the order of the requested IDs. The IDs of the cities that
+//do not exist are listed in missingIds instead of failing the request.
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityBatch {
+	private List<CityData> cities;
+	private List<Long> missingIds;
+}
@@ -1,6 +1,8 @@
 package world.attractions.controller.model;
 
-import java.util.HashSet;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import lombok.Data;
@@ -14,14 +16,23 @@ import world.attractions.entity.City;
 @Data
 @NoArgsConstructor
 public class CityData {
+
+	//The order of the attractions and categories in the JSON. CityJsonWriter writes them in the same order.
+	public static final Comparator<Attraction> ATTRACTION_ORDER = Comparator.comparing(Attraction::getAttractionId,
+			Comparator.nullsLast(Comparator.naturalOrder()));
+	public static final Comparator<Category> CATEGORY_ORDER = Comparator.comparing(Category::getCategoryId,
+			Comparator.nullsLast(Comparator.naturalOrder()));
+
 	private Long cityId;
 	private String cityName;
 	private String country;
 	private String language;
 	private String currency;
 	private String safetyLevel;
-	private Set<CityAttraction> attractions = new HashSet<>();
-	private Set<CityCategory> categories = new HashSet<>();
+	private Double latitude;
+	private Double longitude;
+	private Set<CityAttraction> attractions = new LinkedHashSet<>();
+	private Set<CityCategory> categories = new LinkedHashSet<>();
 
 	//Assigns the values of the City class fields to the CityData class fields.
 	public CityData(City city) {
@@ -31,14 +42,14 @@ public class CityData {
 		language = city.getLanguage();
 		currency = city.getCurrency();
 		safetyLevel = city.getSafetyLevel();
+		latitude = city.getLatitude();
+		longitude = city.getLongitude();
 		
-		for (Attraction attraction : city.getAttractions()) {
-			attractions.add(new CityAttraction(attraction));
-		}
-		
-		for (Category category : city.getCategories()) {
-			categories.add(new CityCategory(category));
-		}
+		city.getAttractions().stream().sorted(ATTRACTION_ORDER).forEach(attraction ->
+				attractions.add(new CityAttraction(attraction)));
+
+		city.getCategories().stream().sorted(CATEGORY_ORDER).forEach(category ->
+				categories.add(new CityCategory(category)));
 	}
 
 	@Data
@@ -49,6 +60,11 @@ public class CityData {
 		private String description;
 		private String ticketPrice;
 		private String visitorsYearly;
+		private BigDecimal ticketPriceAmount;
+		private String ticketPriceCurrency;
+		private Long visitorsYearlyCount;
+		private Double latitude;
+		private Double longitude;
 		
 		//Assigns the values of the Attraction class fields to the CityAttraction class fields.
 		public CityAttraction(Attraction attraction) {
@@ -57,6 +73,11 @@ public class CityData {
 			description = attraction.getDescription();
 			ticketPrice = attraction.getTicketPrice();
 			visitorsYearly = attraction.getVisitorsYearly();
+			ticketPriceAmount = attraction.getTicketPriceAmount();
+			ticketPriceCurrency = attraction.getTicketPriceCurrency();
+			visitorsYearlyCount = attraction.getVisitorsYearlyCount();
+			latitude = attraction.getLatitude();
+			longitude = attraction.getLongitude();
 		}
 	}
 	
@@ -0,0 +1,52 @@
+package world.attractions.controller.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//The filter, sort and field parameters of the city list endpoints. Spring sets the fields from the request parameters
+//with the same names, for example /city?country=Italy&category=Museums&sort=-cityName&fields=cityName,country.
+//A sort key that starts with - sorts in descending order. The cities are always sorted by cityId last.
+
+@Data
+@NoArgsConstructor
+public class CityQuery {
+	private String country;
+	private String language;
+	private String safetyLevel;
+
+	//The name of a category that the cities must list
+	private String category;
+
+	private List<String> sort = new ArrayList<>();
+	private List<String> fields = new ArrayList<>();
+
+	//Returns a copy whose sort keys and fields cannot be changed, so it can be part of a map key or be normalized
+	//without changing the query of the request. The fields of the copy are replaced by the fields that are passed.
+	public CityQuery copyWithFields(List<String> copyFields) {
+		CityQuery copy = new CityQuery();
+
+		copy.setCountry(country);
+		copy.setLanguage(language);
+		copy.setSafetyLevel(safetyLevel);
+		copy.setCategory(category);
+		copy.setSort(Collections.unmodifiableList(new ArrayList<>(sort)));
+		copy.setFields(Collections.unmodifiableList(new ArrayList<>(copyFields)));
+		return copy;
+	}
+
+	//Returns a copy of the query whose sort keys and fields cannot be changed
+	public CityQuery copy() {
+		return copyWithFields(fields);
+	}
+
+	//Returns true if any parameter was passed. Without parameters the endpoints return their original response.
+	public boolean hasParameters() {
+		return Objects.nonNull(country) || Objects.nonNull(language) || Objects.nonNull(safetyLevel)
+				|| Objects.nonNull(category) || !sort.isEmpty() || !fields.isEmpty();
+	}
+}
@@ -0,0 +1,13 @@
+package world.attractions.controller.model;
+
+//A projection of the city columns without the attractions and categories. Spring Data JPA implements this interface
+//with the columns of each row in the query, so no City entities are created when it is used.
+
+public interface CitySummary {
+	Long getCityId();
+	String getCityName();
+	String getCountry();
+	String getLanguage();
+	String getCurrency();
+	String getSafetyLevel();
+}
@@ -0,0 +1,39 @@
+package world.attractions.controller.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A class that reports the outcome of a bulk import. It lists the throughput of every chunk that was written and
+//every line that was rejected, so one bad row does not hide the rows that were imported.
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+	private long importedCities;
+	private long importedAttractions;
+	private List<ImportChunk> chunks = new ArrayList<>();
+	private List<RejectedRow> rejectedRows = new ArrayList<>();
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class ImportChunk {
+		private int chunkNumber;
+		private int rows;
+		private int importedRows;
+		private long elapsedMillis;
+		private double rowsPerSecond;
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class RejectedRow {
+		private long lineNumber;
+		private String reason;
+	}
+}
@@ -0,0 +1,19 @@
+package world.attractions.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//An attraction that a nearby or nearest search found, with its distance from the searched point. The other fields of
+//the attractions can be read in one request with GET /attraction?ids=...
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyAttraction {
+	private Long attractionId;
+	private Long cityId;
+	private double latitude;
+	private double longitude;
+	private double distanceKm;
+}
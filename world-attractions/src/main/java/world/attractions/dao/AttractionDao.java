@@ -1,6 +1,13 @@
 package world.attractions.dao;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import world.attractions.entity.Attraction;
 
@@ -9,4 +16,75 @@ import world.attractions.entity.Attraction;
 
 public interface AttractionDao extends JpaRepository<Attraction, Long> {
 
+	//Retrieves the attractions of the cities together with their cities and the cities' categories in one query
+	@Query("select distinct a from Attraction a join fetch a.city c left join fetch c.categories "
+			+ "where c.cityId in :cityIds")
+	List<Attraction> findWithCityAndCategoriesByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
+
+	//Retrieves an attraction together with its city and the city's categories in one query. The list is empty if the
+	//attraction does not exist.
+	@Query("select distinct a from Attraction a join fetch a.city c left join fetch c.categories "
+			+ "where a.attractionId = :attractionId")
+	List<Attraction> findWithCityAndCategoriesByAttractionId(@Param("attractionId") Long attractionId);
+
+	//Retrieves the attractions of every city in a category together with their cities and the cities' categories
+	@Query("select distinct a from Attraction a join fetch a.city c left join fetch c.categories "
+			+ "where c.cityId in (select cc.cityId from Category cat join cat.cities cc where cat.categoryId = :categoryId)")
+	List<Attraction> findWithCityAndCategoriesByCategoryId(@Param("categoryId") Long categoryId);
+
+	//Retrieves the attractions priced in the currency between the minimum and maximum amounts, cheapest first. The query
+	//is a range scan of the idx_attraction_ticket_price index. The size of the Pageable limits the number of rows.
+	List<Attraction> findByTicketPriceCurrencyAndTicketPriceAmountBetweenOrderByTicketPriceAmountAsc(String currency,
+			BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable);
+
+	//Retrieves the attractions with at least the minimum yearly visitors, most visitors first, by reading the
+	//idx_attraction_visitors index backwards. Counts are never negative, so a minimum of 0 reads every attraction with a
+	//count. Unlike "is not null", the range can be answered from the index by every database. The size of the Pageable
+	//limits the number of rows.
+	List<Attraction> findByVisitorsYearlyCountGreaterThanEqualOrderByVisitorsYearlyCountDesc(Long minCount,
+			Pageable pageable);
+
+	//Retrieves the attractions after the given attraction ID that are missing a numeric price or visitor count, ordered
+	//by the ID, together with their cities. It is used to fill in the numeric columns of attractions that were saved
+	//before they existed.
+	@Query("select a from Attraction a join fetch a.city where a.attractionId > :attractionId "
+			+ "and (a.ticketPriceAmount is null or a.visitorsYearlyCount is null) order by a.attractionId")
+	List<Attraction> findMissingNumbersAfter(@Param("attractionId") Long attractionId, Pageable pageable);
+
+	//Retrieves the locations of the attractions after the given attraction ID, ordered by the ID. An attraction without
+	//its own location is placed at its city, and attractions whose city has no location either are left out. The size of
+	//the Pageable limits the number of rows.
+	// @formatter:off
+	@Query("select a.attractionId as attractionId, c.cityId as cityId, "
+			+ "coalesce(a.latitude, c.latitude) as latitude, coalesce(a.longitude, c.longitude) as longitude "
+			+ "from Attraction a join a.city c "
+			+ "where a.attractionId > :attractionId and coalesce(a.latitude, c.latitude) is not null "
+			+ "order by a.attractionId")
+	// @formatter:on
+	List<AttractionLocation> findLocationsAfter(@Param("attractionId") Long attractionId, Pageable pageable);
+
+	//Retrieves the location of each attraction in the cities. The latitude and longitude are null if neither the
+	//attraction nor its city has a location.
+	@Query("select a.attractionId as attractionId, c.cityId as cityId, "
+			+ "coalesce(a.latitude, c.latitude) as latitude, coalesce(a.longitude, c.longitude) as longitude "
+			+ "from Attraction a join a.city c where c.cityId in :cityIds")
+	List<AttractionLocation> findLocationsByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
+
+	//Retrieves the location of the attraction in the same way as findLocationsByCityIdIn(). The list is empty if the
+	//attraction does not exist.
+	@Query("select a.attractionId as attractionId, c.cityId as cityId, "
+			+ "coalesce(a.latitude, c.latitude) as latitude, coalesce(a.longitude, c.longitude) as longitude "
+			+ "from Attraction a join a.city c where a.attractionId = :attractionId")
+	List<AttractionLocation> findLocationsByAttractionId(@Param("attractionId") Long attractionId);
+
+	//Adds up the attractions of the cities by city and currency. It reads each attraction of the cities once, by the
+	//city_id index.
+	// @formatter:off
+	@Query("select a.city.cityId as cityId, a.ticketPriceCurrency as ticketPriceCurrency, count(a) as attractionCount, "
+			+ "sum(a.visitorsYearlyCount) as visitorsYearly, sum(a.ticketPriceAmount) as ticketPriceSum, "
+			+ "count(a.ticketPriceAmount) as pricedCount "
+			+ "from Attraction a where a.city.cityId in :cityIds "
+			+ "group by a.city.cityId, a.ticketPriceCurrency")
+	// @formatter:on
+	List<AttractionTotals> findTotalsByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
 }
@@ -0,0 +1,11 @@
+package world.attractions.dao;
+
+//A projection of the location of an attraction. Spring Data JPA implements this interface with the columns of each row
+//in the query, so no Attraction entities are created when the location index is built.
+
+public interface AttractionLocation {
+	Long getAttractionId();
+	Long getCityId();
+	Double getLatitude();
+	Double getLongitude();
+}
@@ -0,0 +1,15 @@
+package world.attractions.dao;
+
+import java.math.BigDecimal;
+
+//A projection of the totals of a city's attractions that are priced in one currency. The attractions without a price
+//are counted in the row with a null currency.
+
+public interface AttractionTotals {
+	Long getCityId();
+	String getTicketPriceCurrency();
+	Long getAttractionCount();
+	Long getVisitorsYearly();
+	BigDecimal getTicketPriceSum();
+	Long getPricedCount();
+}
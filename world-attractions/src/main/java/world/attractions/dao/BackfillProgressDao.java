@@ -0,0 +1,30 @@
+package world.attractions.dao;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import world.attractions.entity.BackfillProgress;
+
+//This is the DAO interface for the backfill_progress table.
+
+public interface BackfillProgressDao extends JpaRepository<BackfillProgress, String> {
+
+	//Retrieves the progress of the job and locks its row until the transaction ends, so only one instance of the
+	//application runs the job at a time
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select p from BackfillProgress p where p.backfillName = :backfillName")
+	Optional<BackfillProgress> findAndLock(@Param("backfillName") String backfillName);
+
+	//Creates the progress of the job at attraction ID 0 unless it exists. Two instances that start the job at the same
+	//time both succeed and one row is created.
+	@Modifying
+	@Query(value = "insert ignore into backfill_progress (backfill_name, last_attraction_id) values (:backfillName, 0)",
+			nativeQuery = true)
+	int createIfMissing(@Param("backfillName") String backfillName);
+}
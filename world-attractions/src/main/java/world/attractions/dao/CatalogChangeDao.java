@@ -0,0 +1,35 @@
+package world.attractions.dao;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import world.attractions.entity.CatalogChange;
+
+//This is the DAO interface for the catalog_change outbox table.
+
+public interface CatalogChangeDao extends JpaRepository<CatalogChange, Long> {
+
+	//Retrieves the numbered changes after the sequence number in sequence order. The size of the Pageable limits the
+	//number of rows.
+	List<CatalogChange> findBySequenceNumberGreaterThanOrderBySequenceNumberAsc(Long sequenceNumber, Pageable pageable);
+
+	//Retrieves the IDs of the committed changes that the relay has not numbered yet, in change ID order
+	@Query("select c.changeId from CatalogChange c where c.sequenceNumber is null order by c.changeId")
+	List<Long> findUnsequencedChangeIds(Pageable pageable);
+
+	//Retrieves the sequence number of the newest numbered change that was created before the time, or null if there is
+	//none
+	@Query("select max(c.sequenceNumber) from CatalogChange c where c.createdAt < :createdAt")
+	Long findLastSequenceNumberBefore(@Param("createdAt") Instant createdAt);
+
+	//Deletes the changes up to and including the sequence number
+	@Modifying
+	@Query("delete from CatalogChange c where c.sequenceNumber <= :sequenceNumber")
+	int deleteUpTo(@Param("sequenceNumber") Long sequenceNumber);
+}
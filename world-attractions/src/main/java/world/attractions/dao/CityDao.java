@@ -1,12 +1,71 @@
 package world.attractions.dao;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import world.attractions.controller.model.CitySummary;
 import world.attractions.entity.City;
 
 //This is the DAO interface for the city table. The interface extends the JpaRepository interface that is
-//used to perform CRUD operations on the city table. It generates the SQL statements using its interfaces. 
+//used to perform CRUD operations on the city table. It generates the SQL statements using its interfaces. The queries
+//that are built from request parameters are in the CityDaoCustom interface.
+
+public interface CityDao extends JpaRepository<City, Long>, CityDaoCustom {
+
+	//Retrieves the cities whose ID is greater than the given city ID, ordered by the ID. The size of the Pageable limits the
+	//number of rows. Seeking on the primary key (keyset pagination) costs the same for every page, unlike an OFFSET.
+	//The result is kept in the query cache when the l2cache profile is active.
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	List<City> findByCityIdGreaterThanOrderByCityIdAsc(Long cityId, Pageable pageable);
+
+	//Loads the attractions of the cities with the given IDs in one query. The attractions are set on the cities that are
+	//already in the persistence context, so the collection is not loaded again when CityData reads it.
+	@Query("select distinct c from City c left join fetch c.attractions where c.cityId in :cityIds")
+	List<City> fetchAttractionsByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
+
+	//Loads the categories of the cities with the given IDs in one query, in the same way as fetchAttractionsByCityIdIn().
+	@Query("select distinct c from City c left join fetch c.categories where c.cityId in :cityIds")
+	List<City> fetchCategoriesByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
+
+	//Retrieves the city columns of the cities in a category after the given city ID, ordered by the city ID. The query only
+	//reads the city and city_category tables. The size of the Pageable limits the number of rows.
+	// @formatter:off
+	@Query(value = "select c.city_id as cityId, c.city_name as cityName, c.country as country, c.language as language, "
+			+ "c.currency as currency, c.safety_level as safetyLevel "
+			+ "from city c join city_category cc on cc.city_id = c.city_id "
+			+ "where cc.category_id = :categoryId and c.city_id > :afterCityId "
+			+ "order by c.city_id", nativeQuery = true)
+	// @formatter:on
+	List<CitySummary> findSummariesByCategoryId(@Param("categoryId") Long categoryId,
+			@Param("afterCityId") Long afterCityId, Pageable pageable);
+
+	//Retrieves the IDs of the cities after the given city ID, ordered by the ID. The size of the Pageable limits the
+	//number of rows.
+	@Query("select c.cityId from City c where c.cityId > :cityId order by c.cityId")
+	List<Long> findCityIdsAfter(@Param("cityId") Long cityId, Pageable pageable);
+
+	//Retrieves the country and category IDs of the cities with the given IDs
+	@Query("select c.cityId as cityId, c.country as country, cat.categoryId as categoryId "
+			+ "from City c left join c.categories cat where c.cityId in :cityIds")
+	List<CityGrouping> findGroupingsByCityIdIn(@Param("cityIds") Collection<Long> cityIds);
 
-public interface CityDao extends JpaRepository<City, Long> {
+	//Retrieves the IDs of the cities that list the category
+	@Query(value = "select city_id from city_category where category_id = :categoryId", nativeQuery = true)
+	List<Long> findCityIdsByCategoryId(@Param("categoryId") Long categoryId);
 
+	//Links the city to the category unless it is already linked. Only the city_category table is written, so the cached
+	//categories of the city and cities of the category are the only second-level cache entries that are evicted.
+	@Modifying
+	@Query(value = "insert ignore into city_category (city_id, category_id) values (:cityId, :categoryId)", nativeQuery = true)
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "city_category"))
+	int addCategory(@Param("cityId") Long cityId, @Param("categoryId") Long categoryId);
 }
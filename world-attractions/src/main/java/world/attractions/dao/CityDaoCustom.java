@@ -0,0 +1,26 @@
+package world.attractions.dao;
+
+import java.util.List;
+import java.util.Map;
+
+import world.attractions.controller.model.CityQuery;
+
+//The CityDao queries that are built at runtime with the Criteria API. Spring Data JPA adds the methods of the CityDaoImpl
+//class to the CityDao repository.
+
+public interface CityDaoCustom {
+
+	//The city columns that can be selected, filtered and sorted on
+	List<String> CITY_COLUMNS = List.of("cityId", "cityName", "country", "language", "currency", "safetyLevel",
+			"latitude", "longitude");
+
+	String ATTRACTIONS = "attractions";
+	String CATEGORIES = "categories";
+
+	//Retrieves the fields of the query for the cities that match its filters, in the order of its sort keys. Each city
+	//is a map from the field name to the value, in the order of the fields. Only the city columns in the fields are
+	//selected, and the attractions and categories are only read if they are in the fields.
+	//If the category ID is not null, only the cities in that category are returned. If the after city ID is not null,
+	//only the cities with a greater ID are returned. If the limit is not null, at most that many cities are returned.
+	List<Map<String, Object>> findCityFields(CityQuery query, Long categoryId, Long afterCityId, Integer limit);
+}
@@ -0,0 +1,176 @@
+package world.attractions.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.controller.model.CityQuery;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+
+//Implements the Criteria queries of the CityDaoCustom interface. Spring Data JPA finds this class by its name.
+
+public class CityDaoImpl implements CityDaoCustom {
+
+	private static final String CITY_ID = "cityId";
+
+	//The largest number of city IDs that are put in the IN list of one attraction or category query
+	private static final int FETCH_CHUNK_SIZE = 500;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Map<String, Object>> findCityFields(CityQuery query, Long categoryId, Long afterCityId, Integer limit) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteria = builder.createTupleQuery();
+		Root<City> city = criteria.from(City.class);
+
+		//The city ID is always selected, because the attractions and categories are matched to the cities by it
+		List<Selection<?>> selections = new ArrayList<>();
+		selections.add(city.get(CITY_ID).alias(CITY_ID));
+
+		for (String field : query.getFields()) {
+			if (CITY_COLUMNS.contains(field) && !CITY_ID.equals(field)) {
+				selections.add(city.get(field).alias(field));
+			}
+		}
+
+		List<Predicate> predicates = new ArrayList<>();
+		addEqual(builder, predicates, city, "country", query.getCountry());
+		addEqual(builder, predicates, city, "language", query.getLanguage());
+		addEqual(builder, predicates, city, "safetyLevel", query.getSafetyLevel());
+
+		//A city lists a category once, so joining city_category does not repeat cities
+		if (Objects.nonNull(categoryId)) {
+			Join<City, Category> category = city.join("categories");
+			predicates.add(builder.equal(category.get("categoryId"), categoryId));
+		}
+
+		if (Objects.nonNull(query.getCategory())) {
+			Join<City, Category> category = city.join("categories");
+			predicates.add(builder.equal(category.get("categoryName"), query.getCategory()));
+		}
+
+		if (Objects.nonNull(afterCityId)) {
+			predicates.add(builder.greaterThan(city.get(CITY_ID), afterCityId));
+		}
+
+		List<Order> orders = new ArrayList<>();
+
+		for (String key : query.getSort()) {
+			boolean descending = key.startsWith("-");
+			String column = descending ? key.substring(1) : key;
+
+			if (!CITY_ID.equals(column)) {
+				orders.add(descending ? builder.desc(city.get(column)) : builder.asc(city.get(column)));
+			}
+		}
+
+		//The city ID breaks ties, so the order is the same on every request
+		boolean descendingCityId = query.getSort().contains("-" + CITY_ID);
+		orders.add(descendingCityId ? builder.desc(city.get(CITY_ID)) : builder.asc(city.get(CITY_ID)));
+
+		criteria.multiselect(selections).where(predicates.toArray(Predicate[]::new)).orderBy(orders);
+
+		TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteria);
+
+		if (Objects.nonNull(limit)) {
+			typedQuery.setMaxResults(limit);
+		}
+
+		Map<Long, Map<String, Object>> cities = new LinkedHashMap<>();
+
+		for (Tuple row : typedQuery.getResultList()) {
+			Map<String, Object> fields = new LinkedHashMap<>();
+
+			for (String field : query.getFields()) {
+				fields.put(field, CITY_COLUMNS.contains(field) ? row.get(field) : new ArrayList<>());
+			}
+
+			cities.put(row.get(CITY_ID, Long.class), fields);
+		}
+
+		if (query.getFields().contains(ATTRACTIONS)) {
+			addAttractions(cities);
+		}
+
+		if (query.getFields().contains(CATEGORIES)) {
+			addCategories(cities);
+		}
+
+		return new ArrayList<>(cities.values());
+	}
+
+	//Reads the attractions of the cities from the attraction table alone, by its city_id column
+	@SuppressWarnings("unchecked")
+	private void addAttractions(Map<Long, Map<String, Object>> cities) {
+		for (List<Long> cityIds : chunks(cities)) {
+			// @formatter:off
+			List<Attraction> attractions = entityManager
+					.createQuery("select a from Attraction a where a.city.cityId in :cityIds order by a.attractionId",
+							Attraction.class)
+					.setParameter("cityIds", cityIds)
+					.getResultList();
+			// @formatter:on
+
+			for (Attraction attraction : attractions) {
+				((List<CityAttraction>) cities.get(attraction.getCity().getCityId()).get(ATTRACTIONS))
+						.add(new CityAttraction(attraction));
+			}
+		}
+	}
+
+	//Reads the categories of the cities from the city_category and category tables
+	@SuppressWarnings("unchecked")
+	private void addCategories(Map<Long, Map<String, Object>> cities) {
+		for (List<Long> cityIds : chunks(cities)) {
+			// @formatter:off
+			List<Tuple> rows = entityManager
+					.createQuery("select c.cityId as cityId, cat as category from City c join c.categories cat "
+							+ "where c.cityId in :cityIds order by cat.categoryId", Tuple.class)
+					.setParameter("cityIds", cityIds)
+					.getResultList();
+			// @formatter:on
+
+			for (Tuple row : rows) {
+				((List<CityCategory>) cities.get(row.get(CITY_ID, Long.class)).get(CATEGORIES))
+						.add(new CityCategory(row.get("category", Category.class)));
+			}
+		}
+	}
+
+	private static void addEqual(CriteriaBuilder builder, List<Predicate> predicates, Root<City> city, String column,
+			String value) {
+		if (Objects.nonNull(value)) {
+			predicates.add(builder.equal(city.get(column), value));
+		}
+	}
+
+	private static List<List<Long>> chunks(Map<Long, Map<String, Object>> cities) {
+		List<Long> cityIds = new ArrayList<>(cities.keySet());
+		List<List<Long>> chunks = new ArrayList<>();
+
+		for (int from = 0; from < cityIds.size(); from += FETCH_CHUNK_SIZE) {
+			chunks.add(cityIds.subList(from, Math.min(from + FETCH_CHUNK_SIZE, cityIds.size())));
+		}
+
+		return chunks;
+	}
+}
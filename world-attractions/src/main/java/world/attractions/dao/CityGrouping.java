@@ -0,0 +1,10 @@
+package world.attractions.dao;
+
+//A projection of the groups that a city's attractions are counted in: the city's country and one of its categories.
+//A city has one row per category, and one row with a null category ID if it has no categories.
+
+public interface CityGrouping {
+	Long getCityId();
+	String getCountry();
+	Long getCategoryId();
+}
@@ -0,0 +1,30 @@
+package world.attractions.dao;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import world.attractions.entity.OutboxCursor;
+
+//This is the DAO interface for the outbox_cursor table.
+
+public interface OutboxCursorDao extends JpaRepository<OutboxCursor, String> {
+
+	//Retrieves the cursor and locks its row until the transaction ends, so only one relay with the name publishes at a
+	//time, even with several instances of the application
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select c from OutboxCursor c where c.cursorName = :cursorName")
+	Optional<OutboxCursor> findAndLock(@Param("cursorName") String cursorName);
+
+	//Creates the cursor at sequence number 0 unless it exists. Two instances that start a new relay at the same time
+	//both succeed and one row is created.
+	@Modifying
+	@Query(value = "insert ignore into outbox_cursor (cursor_name, last_change_id) values (:cursorName, 0)",
+			nativeQuery = true)
+	int createIfMissing(@Param("cursorName") String cursorName);
+}
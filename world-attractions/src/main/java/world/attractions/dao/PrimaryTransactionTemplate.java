@@ -0,0 +1,22 @@
+package world.attractions.dao;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//A TransactionTemplate whose transactions always run on the primary, even when they are read-only and the replicas
+//are enabled. It is used by the components that keep data derived from the catalog after a write commits, so a replica
+//that has not applied the write yet cannot put the old data back into them.
+
+public class PrimaryTransactionTemplate extends TransactionTemplate {
+
+	public PrimaryTransactionTemplate(PlatformTransactionManager transactionManager) {
+		super(transactionManager);
+	}
+
+	@Override
+	public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+		return ReplicaRoutingDataSource.callOnPrimary(() -> super.execute(action));
+	}
+}
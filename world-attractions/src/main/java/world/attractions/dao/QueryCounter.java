@@ -0,0 +1,75 @@
+package world.attractions.dao;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//Counts the SQL statements that Hibernate prepares and the entities that it loads on the current thread. The
+//QueryMetricsInterceptor class resets the counts when a request starts and records them when it ends.
+//It also replaces show-sql. A sample of the statements is logged by the world.attractions.sql logger at DEBUG level,
+//which is turned on with the logging.level.world.attractions.sql property.
+
+public class QueryCounter implements StatementInspector, Interceptor {
+
+	private static final Logger SQL_LOG = LoggerFactory.getLogger("world.attractions.sql");
+
+	private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+	//The fraction of statements that are logged when the SQL logger is at DEBUG level
+	private final double sampleRate;
+
+	public QueryCounter(double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	//Counts the statement and logs it if it is sampled. The SQL is returned unchanged.
+	@Override
+	public String inspect(String sql) {
+		COUNTS.get().statements++;
+
+		if (SQL_LOG.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+			SQL_LOG.debug(sql);
+		}
+
+		return sql;
+	}
+
+	//Counts an entity that was loaded from a result set or from the second-level cache
+	@Override
+	public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+		COUNTS.get().entityLoads++;
+		return false;
+	}
+
+	//Sets the counts of the current thread to zero
+	public static void reset() {
+		Counts counts = COUNTS.get();
+
+		counts.statements = 0;
+		counts.entityLoads = 0;
+	}
+
+	//Returns the number of statements prepared on the current thread since the last reset
+	public static long getStatements() {
+		return COUNTS.get().statements;
+	}
+
+	//Returns the number of entities loaded on the current thread since the last reset
+	public static long getEntityLoads() {
+		return COUNTS.get().entityLoads;
+	}
+
+	//Removes the counts of the current thread, so a pooled thread does not keep them between requests
+	public static void clear() {
+		COUNTS.remove();
+	}
+
+	private static class Counts {
+		private long statements;
+		private long entityLoads;
+	}
+}
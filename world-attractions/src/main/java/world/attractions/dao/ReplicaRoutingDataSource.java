@@ -0,0 +1,269 @@
+package world.attractions.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+//Sends the connections of read-only transactions to the healthy replicas in turn, and every other connection to the
+//primary. It must be wrapped in a LazyConnectionDataSourceProxy, because the transaction is only marked read-only after
+//JPA has asked for its connection. The proxy waits for the first statement before it gets the real connection.
+//A thread that is pinned to the primary, for example because its client just wrote, reads from the primary too. Reads
+//that fill data kept after the request, such as the search index, and cache loads of entries that a write evicted a
+//moment ago are pinned to the primary with callOnPrimary(), so a replica that is behind cannot fill them with data
+//from before a write.
+//A thread that sticks to one replica sends all of its read-only transactions to the first replica it is given, so a
+//request that reads the catalog version and then the data never reads data older than the version.
+//The replicas are checked on a schedule. A replica that cannot be reached, or that is further behind than the maximum
+//lag, is ejected until it passes the check again. If a replica connection fails between checks, the replica is ejected
+//and the primary is used.
+
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	private static final String PRIMARY = "primary";
+
+	private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+
+	private final DataSource primary;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final Duration maxLag;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicaDataSources, Duration maxLag) {
+		this.primary = primary;
+		this.maxLag = maxLag;
+
+		Map<Object, Object> targets = new HashMap<>(replicaDataSources);
+		targets.put(PRIMARY, primary);
+
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		replicaDataSources.forEach((name, dataSource) -> replicas.add(new Replica(name, dataSource)));
+	}
+
+	//Sends the reads of the current thread to the primary until unpin() is called
+	public static void pinToPrimary() {
+		route().setPinned(true);
+	}
+
+	//Sends the read-only transactions of the current thread to the same replica until unpin() is called. If that
+	//replica is ejected, they go to the primary, which is never behind it.
+	public static void stickToOneReplica() {
+		route().setSticky(true);
+	}
+
+	//Clears the pin and the replica choice of the current thread
+	public static void unpin() {
+		ROUTE.remove();
+	}
+
+	//Runs the transactions that the supplier starts on the primary, and then restores the routing of the thread. A
+	//thread that had no routing before, such as a scheduled or event thread, is left without one.
+	public static <T> T callOnPrimary(Supplier<T> supplier) {
+		boolean routed = Objects.nonNull(ROUTE.get());
+		Route route = route();
+		boolean pinned = route.isPinned();
+
+		route.setPinned(true);
+
+		try {
+			return supplier.get();
+		} finally {
+			if (routed) {
+				route.setPinned(pinned);
+			} else {
+				ROUTE.remove();
+			}
+		}
+	}
+
+	//Returns whether the current thread has a routing, which is set by the request interceptor or by one of the methods
+	//of this class
+	static boolean isRouted() {
+		return Objects.nonNull(ROUTE.get());
+	}
+
+	//Returns a copy of the routing of the current thread, to be restored on another thread that continues the request
+	public static Route captureRoute() {
+		Route route = route();
+		return new Route(route.isPinned(), route.isSticky(), route.getReplica());
+	}
+
+	//Gives the current thread the routing that captureRoute() returned. The thread calls unpin() when it is done.
+	public static void restoreRoute(Route route) {
+		ROUTE.set(new Route(route.isPinned(), route.isSticky(), route.getReplica()));
+	}
+
+	//Returns the name of a healthy replica for a read-only transaction, and primary otherwise
+	@Override
+	protected Object determineCurrentLookupKey() {
+		Route route = ROUTE.get();
+
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				|| (Objects.nonNull(route) && route.isPinned())) {
+			return PRIMARY;
+		}
+
+		if (Objects.nonNull(route) && Objects.nonNull(route.getReplica())) {
+			boolean healthy = replicas.stream()
+					.anyMatch(replica -> replica.getName().equals(route.getReplica()) && replica.isHealthy());
+			return healthy ? route.getReplica() : PRIMARY;
+		}
+
+		List<Replica> healthy = replicas.stream().filter(Replica::isHealthy).toList();
+
+		if (healthy.isEmpty()) {
+			return PRIMARY;
+		}
+
+		String name = healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size())).getName();
+
+		if (Objects.nonNull(route) && route.isSticky()) {
+			route.setReplica(name);
+		}
+
+		return name;
+	}
+
+	//Returns a connection from the chosen data source. If a replica fails to give one, it is ejected and the primary
+	//is used instead.
+	@Override
+	public Connection getConnection() throws SQLException {
+		Object key = determineCurrentLookupKey();
+
+		if (PRIMARY.equals(key)) {
+			return primary.getConnection();
+		}
+
+		try {
+			return getResolvedDataSources().get(key).getConnection();
+		} catch (SQLException | RuntimeException e) {
+			for (Replica replica : replicas) {
+				if (replica.getName().equals(key)) {
+					eject(replica, e.getMessage());
+				}
+			}
+
+			return primary.getConnection();
+		}
+	}
+
+	//Checks each replica and ejects or readmits it
+	@Scheduled(fixedDelayString = "${world-attractions.replicas.health-check-interval:PT5S}")
+	public void checkReplicas() {
+		for (Replica replica : replicas) {
+			String problem = findProblem(replica);
+
+			if (Objects.isNull(problem) && !replica.isHealthy()) {
+				replica.setHealthy(true);
+				log.info("Replica {} passed its health check and receives reads again", replica.getName());
+			} else if (Objects.nonNull(problem)) {
+				eject(replica, problem);
+			}
+		}
+	}
+
+	//Returns the names of the replicas and whether each one receives reads
+	public Map<String, Boolean> getReplicaHealth() {
+		Map<String, Boolean> health = new HashMap<>();
+		replicas.forEach(replica -> health.put(replica.getName(), replica.isHealthy()));
+		return health;
+	}
+
+	//Closes the replica pools when the application stops. The primary is closed by Spring.
+	public void close() throws Exception {
+		for (Replica replica : replicas) {
+			if (replica.getDataSource() instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+
+	//Returns why the replica should not receive reads, or null if it is healthy
+	private String findProblem(Replica replica) {
+		try (Connection connection = replica.getDataSource().getConnection()) {
+			if (!connection.isValid(2)) {
+				return "the connection is not valid";
+			}
+
+			if (Objects.nonNull(maxLag)) {
+				try (Statement statement = connection.createStatement();
+						ResultSet status = statement.executeQuery("show replica status")) {
+					if (status.next()) {
+						long lag = status.getLong("Seconds_Behind_Source");
+
+						if (status.wasNull()) {
+							return "replication is not running";
+						}
+
+						if (lag > maxLag.toSeconds()) {
+							return "it is " + lag + " seconds behind its source";
+						}
+					}
+				}
+			}
+
+			return null;
+		} catch (SQLException | RuntimeException e) {
+			return e.getMessage();
+		}
+	}
+
+	private void eject(Replica replica, String problem) {
+		if (replica.isHealthy()) {
+			replica.setHealthy(false);
+			log.warn("Ejected replica {} because {}", replica.getName(), problem);
+		}
+	}
+
+	private static Route route() {
+		Route route = ROUTE.get();
+
+		if (Objects.isNull(route)) {
+			route = new Route(false, false, null);
+			ROUTE.set(route);
+		}
+
+		return route;
+	}
+
+	//The routing of a thread: whether it is pinned to the primary, whether it sticks to one replica, and the replica
+	//that it stuck to
+	@Getter
+	@Setter(AccessLevel.PRIVATE)
+	@AllArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class Route {
+		private boolean pinned;
+		private boolean sticky;
+		private String replica;
+	}
+
+	@Data
+	private static class Replica {
+		private final String name;
+		private final DataSource dataSource;
+		private volatile boolean healthy = true;
+	}
+}
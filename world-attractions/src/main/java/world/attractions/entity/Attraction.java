@@ -1,12 +1,20 @@
 package world.attractions.entity;
 
-import jakarta.persistence.CascadeType;
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -15,6 +23,11 @@ import lombok.ToString;
 
 //Tells JPA that this class is an entity that maps to a table
 @Entity
+//Lets the second-level cache hold attractions when it is turned on with the l2cache profile
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+//The indexes that the price range and most visited queries in the AttractionDao interface scan are created by the V2
+//and V3 migrations only, so there is one list of them
 @Data
 public class Attraction {
 	@Id//Tells JPA that this is the primary key.
@@ -26,11 +39,33 @@ public class Attraction {
 	private String description;
 	private String ticketPrice;
 	private String visitorsYearly;
+
+	//The price and yearly visitors as numbers, so they can be filtered and sorted by the database. They are set from the
+	//ticketPrice and visitorsYearly text when the client does not send them.
+	@Column(precision = 12, scale = 2)
+	private BigDecimal ticketPriceAmount;
+
+	//The ISO 4217 code of the ticketPriceAmount currency
+	@Column(length = 3)
+	private String ticketPriceCurrency;
+
+	private Long visitorsYearlyCount;
+
+	//The location of the attraction in WGS 84 degrees. Both are set or both are null.
+	private Double latitude;
+	private Double longitude;
+
+	//Incremented by Hibernate each time the row is updated. An update that started from an older version fails.
+	@Version
+	@EqualsAndHashCode.Exclude
+	private Long version;
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
 	//Creates the many-to-one relationship between attractions and a city. This is the same one-to-many relationship in the City class.
-	@ManyToOne(cascade = CascadeType.ALL)
+	//It does not cascade, because removing an attraction must not remove its city. The city is loaded lazily, so a list of
+	//attractions does not load every city.
+	@ManyToOne(fetch = FetchType.LAZY)
 	//Specifies the foreign key column in the attraction table.
 	@JoinColumn(name = "city_id", nullable = false)
 	private City city;
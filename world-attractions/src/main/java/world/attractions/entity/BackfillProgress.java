@@ -0,0 +1,22 @@
+package world.attractions.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//JPA maps the backfill_progress table to this entity. Each backfill job keeps the last attraction ID that it checked in
+//a row named after the job.
+
+//Tells JPA that this class is an entity that maps to a table
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillProgress {
+	@Id //Tells JPA that this is the primary key.
+	private String backfillName;
+
+	private Long lastAttractionId;
+}
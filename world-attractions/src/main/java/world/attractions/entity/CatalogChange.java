@@ -0,0 +1,46 @@
+package world.attractions.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+//JPA maps the catalog_change outbox table to this entity. A row is inserted for each CatalogChangeEvent in the same
+//transaction as the change, so a change is in the outbox if and only if it committed. The rows are inserted by
+//CatalogOutbox with JDBC and numbered by OutboxRelay.
+
+//Tells JPA that this class is an entity that maps to a table
+@Entity
+//The indexes of the table are created by the V5__create_catalog_change_outbox and V7__sequence_catalog_changes
+//migrations only, so there is one list of them
+@Data
+public class CatalogChange {
+	@Id //Tells JPA that this is the primary key.
+	//The IDs are handed out when the rows are inserted, so they do not follow the order the transactions commit in
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long changeId;
+
+	//The position of the change in the feed. OutboxRelay numbers the committed changes one after the other, so the
+	//numbers have no gaps and a change never gets a smaller number than one that a consumer has already read. It is
+	//null until then.
+	private Long sequenceNumber;
+
+	//The name of the CatalogChangeEvent.ChangeType
+	@Column(length = 32)
+	private String changeType;
+
+	private Long cityId;
+	private Long attractionId;
+	private Long categoryId;
+	private Long previousCityId;
+
+	//The IDs of the attractions that were deleted with a city, separated by commas
+	@Column(columnDefinition = "text")
+	private String attractionIds;
+
+	private Instant createdAt;
+}
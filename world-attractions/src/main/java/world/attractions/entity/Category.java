@@ -3,11 +3,16 @@ package world.attractions.entity;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -16,6 +21,10 @@ import lombok.ToString;
 
 //Tells JPA that this class is an entity that maps to a table.
 @Entity
+//Lets the second-level cache hold categories when it is turned on with the l2cache profile. Categories are only
+//renamed, so a nonstrict cache that is invalidated after commit is enough.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Data
 public class Category {
 	@Id //Tells JPA that this is the primary key.
@@ -24,10 +33,16 @@ public class Category {
 	private Long categoryId;
 	
 	private String categoryName;
+
+	//Incremented by Hibernate each time the row is updated. An update that started from an older version fails.
+	@Version
+	@EqualsAndHashCode.Exclude
+	private Long version;
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
 	//Creates the many-to-many relationship between categories and cities. It is mapped using the categories field in the City class. 
 	@ManyToMany(mappedBy = "categories")
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	private Set<City> cities = new HashSet<>();
 }
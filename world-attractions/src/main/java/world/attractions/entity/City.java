@@ -3,6 +3,10 @@ package world.attractions.entity;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +16,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -20,6 +25,11 @@ import lombok.ToString;
 
 //Tells JPA that this class is an entity that maps to a table
 @Entity 
+//Lets the second-level cache hold cities when it is turned on with the l2cache profile
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+//The indexes of the city and city_category tables are created by the V3__add_query_indexes migration only, so there
+//is one list of them
 @Data
 public class City {
 	@Id //Tells JPA that this is the primary key.
@@ -31,11 +41,22 @@ public class City {
 	private String language;
 	private String currency;
 	private String safetyLevel;
+
+	//The location of the city center in WGS 84 degrees. Attractions without their own location are placed here by the
+	//AttractionGeoIndex class.
+	private Double latitude;
+	private Double longitude;
+
+	//Incremented by Hibernate each time the row is updated. An update that started from an older version fails.
+	@Version
+	@EqualsAndHashCode.Exclude
+	private Long version;
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
 	//Creates the one-to-many relationship between a city and attractions. It is mapped using the city field in the Attraction class.
 	@OneToMany(mappedBy = "city", cascade = CascadeType.ALL)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	private Set<Attraction> attractions = new HashSet<>();
 
 	@EqualsAndHashCode.Exclude
@@ -45,5 +66,6 @@ public class City {
 	@JoinTable(name = "city_category", 
 			joinColumns = @JoinColumn(name = "city_id"),
 			inverseJoinColumns = @JoinColumn(name = "category_id"))
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	private Set<Category> categories = new HashSet<>();
 }
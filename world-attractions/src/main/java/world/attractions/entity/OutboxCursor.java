@@ -0,0 +1,23 @@
+package world.attractions.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//JPA maps the outbox_cursor table to this entity. Each relay keeps the sequence number of the last change it published
+//in a row. The row named sequence holds the last sequence number that was assigned, and the cleanup job keeps the last
+//sequence number it deleted in the row named retention. The column keeps its original last_change_id name.
+
+//Tells JPA that this class is an entity that maps to a table
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxCursor {
+	@Id //Tells JPA that this is the primary key.
+	private String cursorName;
+
+	private Long lastChangeId;
+}
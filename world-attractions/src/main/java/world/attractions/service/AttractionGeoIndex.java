@@ -0,0 +1,204 @@
+package world.attractions.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.NearbyAttraction;
+import world.attractions.dao.AttractionDao;
+import world.attractions.dao.AttractionLocation;
+import world.attractions.dao.PrimaryTransactionTemplate;
+
+//Answers the nearby and nearest attraction searches from a GeoGrid of the attraction locations, without reading the
+//database. An attraction without its own location is placed at its city. The grid is built when the application starts
+//and is updated after each catalog write commits.
+
+@Component
+@Slf4j
+public class AttractionGeoIndex {
+
+	//The largest number of attractions that can be requested from one search
+	public static final int MAX_RESULTS = 100;
+
+	//The largest radius of a nearby search
+	public static final double MAX_RADIUS_KM = 500;
+
+	private static final int REBUILD_CHUNK_SIZE = 10_000;
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	//Rebuilds the grid when the application starts. It can be turned off for tools that do not search.
+	@Value("${world-attractions.geo.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup;
+
+	//The size of the grid cells. Smaller cells read fewer points for small radiuses and more cells for large ones.
+	@Value("${world-attractions.geo.cell-degrees:0.1}")
+	private double cellDegrees;
+
+	//Reads on the primary, so a replica that is behind cannot undo a write that was just applied
+	private final TransactionTemplate readOnlyTransaction;
+
+	private volatile GeoGrid grid;
+
+	//The attractions that changed while the grid was being rebuilt. They are read again after the new grid replaces the
+	//old one. It is null when no rebuild is running.
+	private Set<Long> changedDuringRebuild;
+
+	public AttractionGeoIndex(PlatformTransactionManager transactionManager) {
+		//The grid is updated after the writing transaction commits, so the reads run in a new transaction
+		readOnlyTransaction = new PrimaryTransactionTemplate(transactionManager);
+		readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (rebuildOnStartup) {
+			rebuild();
+		} else {
+			grid = new GeoGrid(cellDegrees);
+		}
+	}
+
+	//Builds a new grid from the attraction locations in keyset chunks and replaces the old grid with it
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		GeoGrid newGrid = new GeoGrid(cellDegrees);
+		Long lastAttractionId = 0L;
+		List<AttractionLocation> chunk;
+
+		synchronized (this) {
+			changedDuringRebuild = new HashSet<>();
+		}
+
+		do {
+			Long afterAttractionId = lastAttractionId;
+			chunk = readOnlyTransaction.execute(status -> attractionDao.findLocationsAfter(afterAttractionId,
+					PageRequest.of(0, REBUILD_CHUNK_SIZE)));
+
+			for (AttractionLocation location : chunk) {
+				newGrid.put(location.getAttractionId(), location.getCityId(), location.getLatitude(),
+						location.getLongitude());
+				lastAttractionId = location.getAttractionId();
+			}
+		} while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+		Set<Long> changed;
+
+		synchronized (this) {
+			grid = newGrid;
+			changed = changedDuringRebuild;
+			changedDuringRebuild = null;
+		}
+
+		for (Long attractionId : changed) {
+			reindexAttraction(attractionId);
+		}
+
+		log.info("Indexed the locations of {} attractions in {} ms", newGrid.size(), System.currentTimeMillis() - start);
+	}
+
+	//Updates the locations of the attractions that a committed catalog write changed. A city's location is used by
+	//its attractions that have none, so all of the city's attractions are read again when it is saved.
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChange(CatalogChangeEvent event) {
+		switch (event.getChangeType()) {
+			case CITY_SAVED -> updateCities(List.of(event.getCityId()));
+			case CITIES_SAVED -> updateCities(event.getCityIds());
+			case CITY_DELETED -> event.getAttractionIds().forEach(this::remove);
+			case ATTRACTION_SAVED -> reindexAttraction(event.getAttractionId());
+			case ATTRACTION_DELETED -> remove(event.getAttractionId());
+			case CATEGORY_SAVED -> {
+			}
+		}
+	}
+
+	//Returns up to limit attractions within the radius of the location, nearest first
+	public List<NearbyAttraction> findWithinRadius(double latitude, double longitude, double radiusKm, int limit) {
+		checkLimit(limit);
+
+		if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+			throw new IllegalArgumentException("Radius must be more than 0 and at most " + MAX_RADIUS_KM + " km.");
+		}
+
+		return currentGrid().findWithinRadius(latitude, longitude, radiusKm, limit);
+	}
+
+	//Returns the limit attractions nearest to the location, nearest first
+	public List<NearbyAttraction> findNearest(double latitude, double longitude, int limit) {
+		checkLimit(limit);
+		GeoGrid.checkCoordinates(latitude, longitude);
+		return currentGrid().findNearest(latitude, longitude, limit);
+	}
+
+	//Reads the locations of the cities' attractions with one query
+	private void updateCities(Collection<Long> cityIds) {
+		readOnlyTransaction.execute(status -> attractionDao.findLocationsByCityIdIn(cityIds)).forEach(this::update);
+	}
+
+	private void reindexAttraction(Long attractionId) {
+		List<AttractionLocation> locations = readOnlyTransaction
+				.execute(status -> attractionDao.findLocationsByAttractionId(attractionId));
+
+		if (locations.isEmpty()) {
+			remove(attractionId);
+		} else {
+			update(locations.get(0));
+		}
+	}
+
+	//Changes before the first grid is built are left to the rebuild
+	private synchronized void update(AttractionLocation location) {
+		if (Objects.isNull(location.getLatitude())) {
+			remove(location.getAttractionId());
+		} else if (recordChange(location.getAttractionId())) {
+			grid.put(location.getAttractionId(), location.getCityId(), location.getLatitude(), location.getLongitude());
+		}
+	}
+
+	private synchronized void remove(Long attractionId) {
+		if (recordChange(attractionId)) {
+			grid.remove(attractionId);
+		}
+	}
+
+	//Records the change if a rebuild is running. Returns true if there is a grid to change.
+	private boolean recordChange(Long attractionId) {
+		if (Objects.nonNull(changedDuringRebuild)) {
+			changedDuringRebuild.add(attractionId);
+		}
+
+		return Objects.nonNull(grid);
+	}
+
+	private GeoGrid currentGrid() {
+		GeoGrid current = grid;
+
+		if (Objects.isNull(current)) {
+			throw new IllegalStateException("The attraction locations are still being indexed.");
+		}
+
+		return current;
+	}
+
+	private void checkLimit(int limit) {
+		if (limit < 1 || limit > MAX_RESULTS) {
+			throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RESULTS + ".");
+		}
+	}
+}
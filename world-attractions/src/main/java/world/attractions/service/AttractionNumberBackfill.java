@@ -0,0 +1,115 @@
+package world.attractions.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.dao.AttractionDao;
+import world.attractions.dao.BackfillProgressDao;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.BackfillProgress;
+
+//Fills in the numeric price and visitor columns of attractions that were saved before the columns existed. It reads the
+//numbers from the ticketPrice and visitorsYearly text when the application starts. The last attraction ID that it
+//checked is kept in the backfill_progress row named attraction-numbers, so each attraction is only checked once: the
+//rows whose text has no number are not read again at the next start. Each chunk publishes one CITIES_SAVED event for
+//the cities of the attractions it filled in, instead of one event per attraction.
+
+@Component
+@Slf4j
+public class AttractionNumberBackfill {
+
+	private static final int CHUNK_SIZE = 500;
+
+	static final String BACKFILL_NAME = "attraction-numbers";
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	@Autowired
+	private BackfillProgressDao backfillProgressDao;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${world-attractions.backfill.attraction-numbers:true}")
+	private boolean enabled;
+
+	private final TransactionTemplate transactionTemplate;
+
+	public AttractionNumberBackfill(PlatformTransactionManager transactionManager) {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	//Updates the attractions after the last one checked in keyset chunks, one transaction per chunk, and records the
+	//progress past each chunk in the same transaction. The progress row is locked, so two instances that start at once do
+	//not update the same attractions. Attractions whose text has no number keep null values.
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfill() {
+		if (!enabled) {
+			return;
+		}
+
+		long updated = 0;
+		List<Attraction> chunk;
+
+		do {
+			chunk = transactionTemplate.execute(status -> backfillChunk());
+
+			for (Attraction attraction : chunk) {
+				if (Objects.nonNull(attraction.getTicketPriceAmount()) || Objects.nonNull(attraction.getVisitorsYearlyCount())) {
+					updated++;
+				}
+			}
+		} while (chunk.size() == CHUNK_SIZE);
+
+		if (updated > 0) {
+			log.info("Filled in the numeric price and visitor columns of {} attractions", updated);
+		}
+	}
+
+	//Updates the next chunk of attractions and records the progress past it. The cities are read with the attractions.
+	//An amount that was stored without a currency that can be found is left as it is.
+	private List<Attraction> backfillChunk() {
+		backfillProgressDao.createIfMissing(BACKFILL_NAME);
+
+		BackfillProgress progress = backfillProgressDao.findAndLock(BACKFILL_NAME).orElseThrow();
+		List<Attraction> attractions = attractionDao.findMissingNumbersAfter(progress.getLastAttractionId(),
+				PageRequest.of(0, CHUNK_SIZE));
+		Set<Long> updatedCityIds = new LinkedHashSet<>();
+
+		for (Attraction attraction : attractions) {
+			try {
+				AttractionNumbers.setNumericFields(attraction, new CityAttraction(attraction),
+						attraction.getCity()::getCountry);
+			} catch (IllegalArgumentException e) {
+				log.warn("Attraction {} has a ticket price amount without a currency", attraction.getAttractionId());
+			}
+
+			if (Objects.nonNull(attraction.getTicketPriceAmount()) || Objects.nonNull(attraction.getVisitorsYearlyCount())) {
+				updatedCityIds.add(attraction.getCity().getCityId());
+			}
+
+			progress.setLastAttractionId(attraction.getAttractionId());
+		}
+
+		if (!updatedCityIds.isEmpty()) {
+			eventPublisher.publishEvent(CatalogChangeEvent.citiesSaved(updatedCityIds));
+		}
+
+		return attractions;
+	}
+}
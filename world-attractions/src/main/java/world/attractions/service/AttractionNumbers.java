@@ -0,0 +1,168 @@
+package world.attractions.service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.entity.Attraction;
+
+//Reads the numbers in the ticketPrice and visitorsYearly text of an attraction, for example "Adult:$45 Child:$25" and
+//"7,000,000". The text fields were the only place these values were stored, so the numeric columns are filled from
+//them when a client does not send the numbers. The "$" and "¥" symbols are used by several currencies, so their
+//currency is taken from the country of the city.
+
+public final class AttractionNumbers {
+
+	//A currency symbol followed by an amount, such as "$45", "€16.00" or "R$ 80"
+	private static final Pattern PRICE = Pattern.compile("(R\\$|US\\$|[€$£¥])\\s?(\\d[\\d,]*(?:\\.\\d{1,2})?)");
+
+	//A count such as "7,000,000" or "2.5 million"
+	private static final Pattern COUNT = Pattern.compile("(\\d[\\d,]*(?:\\.\\d+)?)\\s*(million|billion)?",
+			Pattern.CASE_INSENSITIVE);
+
+	//The symbols that name one currency
+	private static final Map<String, String> CURRENCY_CODES = Map.of("US$", "USD", "€", "EUR", "£", "GBP", "R$", "BRL");
+
+	//The currencies of the countries that write their prices with "$" or "¥". The currency of the symbol is unknown in
+	//the cities of other countries.
+	// @formatter:off
+	private static final Map<String, Map<String, String>> LOCAL_CURRENCY_CODES = Map.of(
+			"$", Map.ofEntries(
+					Map.entry("United States of America", "USD"),
+					Map.entry("Canada", "CAD"),
+					Map.entry("Australia", "AUD"),
+					Map.entry("New Zealand", "NZD"),
+					Map.entry("Mexico", "MXN"),
+					Map.entry("Argentina", "ARS"),
+					Map.entry("Chile", "CLP"),
+					Map.entry("Colombia", "COP"),
+					Map.entry("Singapore", "SGD"),
+					Map.entry("Hong Kong", "HKD")),
+			"¥", Map.of(
+					"Japan", "JPY",
+					"China", "CNY"));
+	// @formatter:on
+
+	//The currencies of the countries whose prices are written with a symbol, used for amounts sent without a currency
+	private static final Map<String, String> COUNTRY_CURRENCY_CODES = countryCurrencyCodes();
+
+	private AttractionNumbers() {
+	}
+
+	//Sets the numeric fields of the attraction. The values that the client sent are used first. Otherwise they are read
+	//from the text fields, and they stay null if the text does not contain a number. The country of the city is only
+	//asked for when the currency depends on it, so a city that is not loaded yet is not loaded for every attraction.
+	public static void setNumericFields(Attraction attraction, CityAttraction cityAttraction, Supplier<String> country) {
+		if (Objects.nonNull(cityAttraction.getTicketPriceAmount())) {
+			attraction.setTicketPriceAmount(cityAttraction.getTicketPriceAmount());
+			attraction.setTicketPriceCurrency(Objects.nonNull(cityAttraction.getTicketPriceCurrency())
+					? cityAttraction.getTicketPriceCurrency()
+					: findCountryCurrency(country.get()));
+		} else {
+			Price price = parsePrice(cityAttraction.getTicketPrice(), country);
+
+			attraction.setTicketPriceAmount(Objects.isNull(price) ? null : price.amount());
+			attraction.setTicketPriceCurrency(Objects.isNull(price) ? null : price.currency());
+		}
+
+		if (Objects.nonNull(cityAttraction.getVisitorsYearlyCount())) {
+			checkVisitorsYearlyCount(cityAttraction);
+			attraction.setVisitorsYearlyCount(cityAttraction.getVisitorsYearlyCount());
+		} else {
+			attraction.setVisitorsYearlyCount(parseCount(cityAttraction.getVisitorsYearly()));
+		}
+	}
+
+	//Checks the numbers that the client sent, so they are rejected before anything is written. The currency of an
+	//amount must be known.
+	public static void checkNumericFields(CityAttraction cityAttraction, Supplier<String> country) {
+		if (Objects.nonNull(cityAttraction.getTicketPriceAmount()) && Objects.isNull(cityAttraction.getTicketPriceCurrency())) {
+			findCountryCurrency(country.get());
+		}
+
+		checkVisitorsYearlyCount(cityAttraction);
+	}
+
+	//A count is never negative, so the most visited query can read the attractions with a count as a range of the
+	//idx_attraction_visitors index
+	private static void checkVisitorsYearlyCount(CityAttraction cityAttraction) {
+		if (Objects.nonNull(cityAttraction.getVisitorsYearlyCount()) && cityAttraction.getVisitorsYearlyCount() < 0) {
+			throw new IllegalArgumentException("The visitorsYearlyCount cannot be negative.");
+		}
+	}
+
+	//Returns the currency of the country, for an amount that the client sent without one. The amount cannot be stored
+	//without a currency, so it is rejected if the country does not name one.
+	private static String findCountryCurrency(String country) {
+		String currency = Objects.isNull(country) ? null : COUNTRY_CURRENCY_CODES.get(country);
+
+		if (Objects.isNull(currency)) {
+			throw new IllegalArgumentException("The ticketPriceCurrency must be given with the ticketPriceAmount.");
+		}
+
+		return currency;
+	}
+
+	//Returns the first price in the text, or null if there is none. When the text lists several prices, the first
+	//one is usually the adult price. The currency is null if the symbol is not used by the country of the city.
+	public static Price parsePrice(String text, Supplier<String> country) {
+		if (Objects.isNull(text)) {
+			return null;
+		}
+
+		Matcher matcher = PRICE.matcher(text);
+
+		if (!matcher.find()) {
+			return null;
+		}
+
+		BigDecimal amount = new BigDecimal(matcher.group(2).replace(",", ""));
+		String symbol = matcher.group(1);
+
+		if (LOCAL_CURRENCY_CODES.containsKey(symbol)) {
+			return new Price(amount, LOCAL_CURRENCY_CODES.get(symbol).get(Objects.requireNonNullElse(country.get(), "")));
+		}
+
+		return new Price(amount, CURRENCY_CODES.get(symbol));
+	}
+
+	//Returns the first count in the text, or null if there is none
+	public static Long parseCount(String text) {
+		if (Objects.isNull(text)) {
+			return null;
+		}
+
+		Matcher matcher = COUNT.matcher(text);
+
+		if (!matcher.find()) {
+			return null;
+		}
+
+		BigDecimal count = new BigDecimal(matcher.group(1).replace(",", ""));
+
+		if (Objects.nonNull(matcher.group(2))) {
+			count = count.multiply(matcher.group(2).equalsIgnoreCase("million") ? BigDecimal.valueOf(1_000_000)
+					: BigDecimal.valueOf(1_000_000_000));
+		}
+
+		return count.longValue();
+	}
+
+	//Adds the countries of the symbols that name one currency to the countries of "$" and "¥"
+	private static Map<String, String> countryCurrencyCodes() {
+		Map<String, String> codes = new HashMap<>(Map.of("Brazil", "BRL", "United Kingdom", "GBP", "Italy", "EUR",
+				"France", "EUR", "Spain", "EUR", "Germany", "EUR", "Portugal", "EUR", "Netherlands", "EUR"));
+
+		LOCAL_CURRENCY_CODES.values().forEach(codes::putAll);
+		return Map.copyOf(codes);
+	}
+
+	//An amount of money and the ISO 4217 code of its currency
+	public record Price(BigDecimal amount, String currency) {
+	}
+}
@@ -0,0 +1,469 @@
+package world.attractions.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.AttractionSearchResult;
+import world.attractions.controller.model.AttractionSearchResult.AttractionHit;
+import world.attractions.dao.AttractionDao;
+import world.attractions.dao.CityDao;
+import world.attractions.dao.PrimaryTransactionTemplate;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+
+//An in-memory Lucene index of the attractions. Each attraction is indexed with the name, description, country,
+//language, currency and safety level of its city and the names of the city's categories. The index is built when the
+//application starts and is updated after each catalog write commits.
+//The updates read from the database without a lock, and only the writes to the index hold it. Each read gets a ticket
+//before it starts, and the document of an attraction is only written if no read or delete with a later ticket has been
+//applied to the attraction or its city, so a slow update never replaces a newer document or brings back a deleted one.
+//Each document is replaced with one updateDocument() call, so a search never sees an attraction missing while it is
+//indexed again. A rebuild clears the index under the lock and ignores the reads that started before it. The changes
+//that commit while it runs are applied after it.
+
+@Component
+@Slf4j
+public class AttractionSearchIndex {
+
+	public static final String COUNTRY = "country";
+	public static final String LANGUAGE = "language";
+	public static final String CURRENCY = "currency";
+	public static final String SAFETY_LEVEL = "safetyLevel";
+	public static final String CATEGORY = "category";
+
+	//The dimensions that are counted for every search
+	public static final List<String> FACET_DIMENSIONS = List.of(COUNTRY, LANGUAGE, CURRENCY, SAFETY_LEVEL, CATEGORY);
+
+	//The largest number of hits that can be requested from one search
+	public static final int MAX_HITS = 100;
+
+	private static final String ATTRACTION_ID = "attractionId";
+	private static final String CITY_ID = "cityId";
+	private static final String CITY_NAME = "cityName";
+	private static final String ATTRACTION_NAME = "attractionName";
+	private static final String DESCRIPTION = "description";
+	private static final int FACET_VALUES = 20;
+	private static final int REBUILD_CHUNK_SIZE = 500;
+	private static final int REINDEX_CHUNK_SIZE = 100;
+
+	@Autowired
+	private CityDao cityDao;
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	//Rebuilds the index when the application starts. It can be turned off for tools that do not search.
+	@Value("${world-attractions.search.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup;
+
+	//Reads on the primary, so a replica that is behind cannot undo a write that was just applied
+	private final TransactionTemplate readOnlyTransaction;
+
+	//Hands out the tickets of the reads in the order they start. A read sees every write that committed before its
+	//ticket was taken.
+	private final AtomicLong readTickets = new AtomicLong();
+
+	//Stops two rebuilds from running at once
+	private final Object rebuildLock = new Object();
+
+	//The ticket of the last read or delete applied to each attraction, and of the last delete of each city. Reads with
+	//a ticket below the floor started before the last rebuild, which read everything again. They are only used while
+	//the lock of this object is held.
+	private Map<Long, Long> attractionTickets = new HashMap<>();
+	private Map<Long, Long> deletedCityTickets = new HashMap<>();
+	private long floorTicket;
+
+	//The changes that committed while the index was being rebuilt. They are applied after the rebuild. It is null when
+	//no rebuild is running.
+	private List<CatalogChangeEvent> changesDuringRebuild;
+
+	private final Analyzer analyzer = new StandardAnalyzer();
+	private final FacetsConfig facetsConfig = new FacetsConfig();
+	private final IndexWriter indexWriter;
+	private final SearcherManager searcherManager;
+
+	//The facet ordinals of the current reader. They are built again only when the reader changes.
+	private volatile FacetState facetState;
+
+	//Opens the index writer and the searcher manager over an in-memory directory
+	public AttractionSearchIndex(PlatformTransactionManager transactionManager) throws IOException {
+		//The index is updated after the writing transaction commits, so the reads run in a new transaction
+		readOnlyTransaction = new PrimaryTransactionTemplate(transactionManager);
+		readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		readOnlyTransaction.setReadOnly(true);
+
+		facetsConfig.setMultiValued(CATEGORY, true);
+		indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+		searcherManager = new SearcherManager(indexWriter, null);
+	}
+
+	//Indexes every attraction. The cities are read in keyset chunks with their attractions and categories.
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (rebuildOnStartup) {
+			rebuild();
+		}
+	}
+
+	//Drops the index and indexes every attraction again
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.currentTimeMillis();
+
+			try {
+				synchronized (this) {
+					changesDuringRebuild = new ArrayList<>();
+					floorTicket = readTickets.incrementAndGet();
+					attractionTickets = new HashMap<>();
+					deletedCityTickets = new HashMap<>();
+					indexWriter.deleteAll();
+				}
+
+				Long lastCityId = 0L;
+				int indexed;
+
+				do {
+					Long afterCityId = lastCityId;
+					long ticket = readTickets.incrementAndGet();
+					List<City> cities = readOnlyTransaction.execute(status -> {
+						List<City> chunk = cityDao.findByCityIdGreaterThanOrderByCityIdAsc(afterCityId,
+								PageRequest.of(0, REBUILD_CHUNK_SIZE));
+						List<Long> cityIds = chunk.stream().map(City::getCityId).toList();
+
+						if (!cityIds.isEmpty()) {
+							cityDao.fetchAttractionsByCityIdIn(cityIds);
+							cityDao.fetchCategoriesByCityIdIn(cityIds);
+						}
+
+						return chunk;
+					});
+
+					writeDocuments(cities.stream().flatMap(city -> city.getAttractions().stream()).toList(), ticket);
+					lastCityId = cities.isEmpty() ? lastCityId : cities.get(cities.size() - 1).getCityId();
+					indexed = cities.size();
+				} while (indexed == REBUILD_CHUNK_SIZE);
+
+				searcherManager.maybeRefresh();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				List<CatalogChangeEvent> changes;
+
+				synchronized (this) {
+					changes = Objects.requireNonNullElse(changesDuringRebuild, List.of());
+					changesDuringRebuild = null;
+				}
+
+				changes.forEach(this::applyChange);
+			}
+
+			log.info("Indexed {} attractions in {} ms", indexWriter.getDocStats().numDocs,
+					System.currentTimeMillis() - start);
+		}
+	}
+
+	//Updates the documents of the attractions that a committed catalog write changed. While the index is being rebuilt,
+	//the change is kept and applied after the rebuild.
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChange(CatalogChangeEvent event) {
+		synchronized (this) {
+			if (Objects.nonNull(changesDuringRebuild)) {
+				changesDuringRebuild.add(event);
+				return;
+			}
+		}
+
+		applyChange(event);
+	}
+
+	//Reindexes or removes the attractions of the change and makes the new documents visible to searches
+	private void applyChange(CatalogChangeEvent event) {
+		try {
+			switch (event.getChangeType()) {
+				case CITY_SAVED -> reindexCities(List.of(event.getCityId()));
+				case CITIES_SAVED -> reindexCities(event.getCityIds());
+				case CITY_DELETED -> deleteCity(event.getCityId());
+				case ATTRACTION_SAVED -> reindexAttraction(event.getAttractionId());
+				case ATTRACTION_DELETED -> deleteAttraction(event.getAttractionId());
+				case CATEGORY_SAVED -> reindexCategory(event.getCategoryId());
+			}
+
+			searcherManager.maybeRefresh();
+		} catch (IOException e) {
+			log.error("Could not update the search index for {}", event, e);
+		}
+	}
+
+	//Searches the attraction names and descriptions and filters the hits by the facet values. A blank text matches every
+	//attraction. The hits are ranked by score and the facet counts cover all of the matching attractions.
+	public AttractionSearchResult search(String text, Map<String, String> filters, int limit) throws IOException {
+		if (limit < 1 || limit > MAX_HITS) {
+			throw new IllegalArgumentException("Limit must be between 1 and " + MAX_HITS + ".");
+		}
+
+		DrillDownQuery query = new DrillDownQuery(facetsConfig, parse(text));
+
+		filters.forEach((dimension, value) -> {
+			if (Objects.nonNull(value) && !value.isBlank()) {
+				query.add(dimension, value);
+			}
+		});
+
+		IndexSearcher searcher = searcherManager.acquire();
+
+		try {
+			FacetsCollector facetsCollector = new FacetsCollector();
+			TopDocs topDocs = FacetsCollector.search(searcher, query, limit, facetsCollector);
+			AttractionSearchResult result = new AttractionSearchResult();
+
+			result.setTotalHits(topDocs.totalHits.value);
+
+			for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+				Document document = searcher.storedFields().document(scoreDoc.doc);
+
+				// @formatter:off
+				result.getHits().add(new AttractionHit(
+						Long.valueOf(document.get(ATTRACTION_ID)),
+						Long.valueOf(document.get(CITY_ID)),
+						document.get(CITY_NAME),
+						document.get(ATTRACTION_NAME),
+						scoreDoc.score));
+				// @formatter:on
+			}
+
+			SortedSetDocValuesReaderState state = facetState(searcher.getIndexReader());
+
+			if (Objects.nonNull(state)) {
+				Facets facets = new SortedSetDocValuesFacetCounts(state, facetsCollector);
+
+				for (String dimension : FACET_DIMENSIONS) {
+					result.getFacets().put(dimension, countValues(facets, dimension));
+				}
+			}
+
+			return result;
+		} finally {
+			searcherManager.release(searcher);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		searcherManager.close();
+		indexWriter.close();
+	}
+
+	//Parses the text with the Lucene query syntax over the name and description fields
+	private Query parse(String text) {
+		if (Objects.isNull(text) || text.isBlank()) {
+			return new MatchAllDocsQuery();
+		}
+
+		MultiFieldQueryParser parser = new MultiFieldQueryParser(new String[] { ATTRACTION_NAME, DESCRIPTION },
+				analyzer, Map.of(ATTRACTION_NAME, 2.0f, DESCRIPTION, 1.0f));
+
+		try {
+			return parser.parse(text);
+		} catch (ParseException e) {
+			throw new IllegalArgumentException("Search text \"" + text + "\" is not valid: " + e.getMessage());
+		}
+	}
+
+	//Returns the facet ordinals for the reader. It returns null when no document has a facet value yet.
+	private SortedSetDocValuesReaderState facetState(IndexReader reader) throws IOException {
+		FacetState current = facetState;
+
+		if (Objects.isNull(current) || current.reader() != reader) {
+			SortedSetDocValuesReaderState state = null;
+
+			if (reader.numDocs() > 0) {
+				try {
+					state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+				} catch (IllegalArgumentException e) {
+					//None of the documents has a facet value
+				}
+			}
+
+			current = new FacetState(reader, state);
+			facetState = current;
+		}
+
+		return current.state();
+	}
+
+	//Returns the most common values of the dimension with their counts
+	private Map<String, Long> countValues(Facets facets, String dimension) throws IOException {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		FacetResult facetResult;
+
+		try {
+			facetResult = facets.getTopChildren(FACET_VALUES, dimension);
+		} catch (IllegalArgumentException e) {
+			//No document has a value for this dimension
+			return counts;
+		}
+
+		if (Objects.nonNull(facetResult)) {
+			for (LabelAndValue labelAndValue : facetResult.labelValues) {
+				counts.put(labelAndValue.label, labelAndValue.value.longValue());
+			}
+		}
+
+		return counts;
+	}
+
+	//Indexes the attractions of the cities again, for example after a city's country changed or a chunk of cities was
+	//imported. The attractions are read REINDEX_CHUNK_SIZE cities at a time, each chunk with one query. Attractions
+	//that left a city or were deleted are updated by their own changes.
+	private void reindexCities(Collection<Long> cityIds) throws IOException {
+		List<Long> ids = List.copyOf(cityIds);
+
+		for (int from = 0; from < ids.size(); from += REINDEX_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(from, Math.min(from + REINDEX_CHUNK_SIZE, ids.size()));
+			long ticket = readTickets.incrementAndGet();
+			List<Attraction> attractions = readOnlyTransaction
+					.execute(status -> attractionDao.findWithCityAndCategoriesByCityIdIn(chunk));
+
+			writeDocuments(attractions, ticket);
+		}
+	}
+
+	//Indexes one attraction again
+	private void reindexAttraction(Long attractionId) throws IOException {
+		long ticket = readTickets.incrementAndGet();
+		List<Attraction> attractions = readOnlyTransaction
+				.execute(status -> attractionDao.findWithCityAndCategoriesByAttractionId(attractionId));
+
+		writeDocuments(attractions, ticket);
+	}
+
+	//Indexes the attractions of every city in the category again, because the category name may have changed
+	private void reindexCategory(Long categoryId) throws IOException {
+		long ticket = readTickets.incrementAndGet();
+		List<Attraction> attractions = readOnlyTransaction
+				.execute(status -> attractionDao.findWithCityAndCategoriesByCategoryId(categoryId));
+
+		writeDocuments(attractions, ticket);
+	}
+
+	//Replaces the documents of the attractions that were read with the ticket. An attraction is skipped if a read or
+	//delete with a later ticket has been applied to it or to its city.
+	private synchronized void writeDocuments(List<Attraction> attractions, long ticket) throws IOException {
+		for (Attraction attraction : attractions) {
+			Long attractionId = attraction.getAttractionId();
+			Long cityId = attraction.getCity().getCityId();
+
+			if (ticket < attractionTickets.getOrDefault(attractionId, floorTicket)
+					|| ticket < deletedCityTickets.getOrDefault(cityId, floorTicket)) {
+				continue;
+			}
+
+			attractionTickets.put(attractionId, ticket);
+			indexWriter.updateDocument(new Term(ATTRACTION_ID, attractionId.toString()),
+					toDocument(attraction, attraction.getCity()));
+		}
+	}
+
+	//Removes the documents of the city's attractions. Reads of the city that started before the delete are not written.
+	private void deleteCity(Long cityId) throws IOException {
+		long ticket = readTickets.incrementAndGet();
+
+		synchronized (this) {
+			deletedCityTickets.put(cityId, ticket);
+			indexWriter.deleteDocuments(new Term(CITY_ID, cityId.toString()));
+		}
+	}
+
+	//Removes the document of the attraction. Reads of the attraction that started before the delete are not written.
+	private void deleteAttraction(Long attractionId) throws IOException {
+		long ticket = readTickets.incrementAndGet();
+
+		synchronized (this) {
+			attractionTickets.put(attractionId, ticket);
+			indexWriter.deleteDocuments(new Term(ATTRACTION_ID, attractionId.toString()));
+		}
+	}
+
+	//Creates the document of an attraction. The city and its categories must already be loaded.
+	private Document toDocument(Attraction attraction, City city) throws IOException {
+		Document document = new Document();
+
+		document.add(new StringField(ATTRACTION_ID, attraction.getAttractionId().toString(), Field.Store.YES));
+		document.add(new StringField(CITY_ID, city.getCityId().toString(), Field.Store.YES));
+		document.add(new StoredField(CITY_NAME, Objects.toString(city.getCityName(), "")));
+		document.add(new TextField(ATTRACTION_NAME, Objects.toString(attraction.getAttractionName(), ""), Field.Store.YES));
+		document.add(new TextField(DESCRIPTION, Objects.toString(attraction.getDescription(), ""), Field.Store.NO));
+
+		addFacet(document, COUNTRY, city.getCountry());
+		addFacet(document, LANGUAGE, city.getLanguage());
+		addFacet(document, CURRENCY, city.getCurrency());
+		addFacet(document, SAFETY_LEVEL, city.getSafetyLevel());
+
+		for (Category category : city.getCategories()) {
+			addFacet(document, CATEGORY, category.getCategoryName());
+		}
+
+		return facetsConfig.build(document);
+	}
+
+	private void addFacet(Document document, String dimension, String value) {
+		if (Objects.nonNull(value) && !value.isBlank()) {
+			document.add(new SortedSetDocValuesFacetField(dimension, value));
+		}
+	}
+
+	private record FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+	}
+}
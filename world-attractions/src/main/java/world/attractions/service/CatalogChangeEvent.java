@@ -0,0 +1,59 @@
+package world.attractions.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+import lombok.Value;
+
+//An application event that the CityService class publishes every time it writes a city, attraction or category.
+//Components that keep data derived from the catalog listen for it to update or evict that data. The CityImportService
+//class publishes one CITIES_SAVED event for each chunk of imported cities, so the listeners can update the data of the
+//whole chunk at once.
+
+@Value
+public class CatalogChangeEvent {
+
+	public enum ChangeType {
+		CITY_SAVED, CITIES_SAVED, CITY_DELETED, ATTRACTION_SAVED, ATTRACTION_DELETED, CATEGORY_SAVED
+	}
+
+	ChangeType changeType;
+	Long cityId;
+	Long attractionId;
+	Long categoryId;
+
+	//The city that an updated attraction belonged to before the update. It is null if the attraction did not move.
+	Long previousCityId;
+
+	//The attractions that were deleted along with a city
+	Set<Long> attractionIds;
+
+	//The cities that were saved together
+	Set<Long> cityIds;
+
+	public static CatalogChangeEvent citySaved(Long cityId) {
+		return new CatalogChangeEvent(ChangeType.CITY_SAVED, cityId, null, null, null, Set.of(), Set.of());
+	}
+
+	public static CatalogChangeEvent citiesSaved(Collection<Long> cityIds) {
+		return new CatalogChangeEvent(ChangeType.CITIES_SAVED, null, null, null, null, Set.of(), Set.copyOf(cityIds));
+	}
+
+	public static CatalogChangeEvent cityDeleted(Long cityId, Set<Long> attractionIds) {
+		return new CatalogChangeEvent(ChangeType.CITY_DELETED, cityId, null, null, null, attractionIds, Set.of());
+	}
+
+	public static CatalogChangeEvent attractionSaved(Long cityId, Long attractionId, Long previousCityId) {
+		return new CatalogChangeEvent(ChangeType.ATTRACTION_SAVED, cityId, attractionId, null, previousCityId, Set.of(),
+				Set.of());
+	}
+
+	public static CatalogChangeEvent attractionDeleted(Long cityId, Long attractionId) {
+		return new CatalogChangeEvent(ChangeType.ATTRACTION_DELETED, cityId, attractionId, null, null, Set.of(),
+				Set.of());
+	}
+
+	public static CatalogChangeEvent categorySaved(Long cityId, Long categoryId) {
+		return new CatalogChangeEvent(ChangeType.CATEGORY_SAVED, cityId, null, categoryId, null, Set.of(), Set.of());
+	}
+}
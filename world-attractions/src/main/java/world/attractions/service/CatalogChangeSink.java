@@ -0,0 +1,15 @@
+package world.attractions.service;
+
+import java.util.List;
+
+import world.attractions.controller.model.CatalogChangeData;
+
+//A destination that the OutboxRelay class publishes the committed catalog changes to, such as a message broker, a
+//file or in-process listeners. Every CatalogChangeSink bean receives every change.
+
+public interface CatalogChangeSink {
+
+	//Publishes a batch of changes in sequence order. If it throws, the batch is published again to every sink on the
+	//next run, so a sink sees each change at least once and must ignore the changes that it has already seen.
+	void publish(List<CatalogChangeData> changes) throws Exception;
+}
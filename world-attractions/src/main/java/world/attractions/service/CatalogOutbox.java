@@ -0,0 +1,215 @@
+package world.attractions.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.CatalogChangeData;
+import world.attractions.controller.model.ChangePage;
+import world.attractions.dao.CatalogChangeDao;
+import world.attractions.dao.OutboxCursorDao;
+import world.attractions.entity.CatalogChange;
+import world.attractions.entity.OutboxCursor;
+
+//Writes every catalog change to the catalog_change outbox in the transaction that made it, and serves the changes after
+//a cursor to consumers that keep their own copy of the catalog. The OutboxRelay class numbers the committed changes and
+//publishes them to the CatalogChangeSink beans.
+//The changes are kept for world-attractions.outbox.retention and then deleted. A consumer whose cursor is older than
+//that is told to reload the catalog.
+
+@Service
+@Slf4j
+public class CatalogOutbox {
+
+	//The largest number of changes that can be requested at once from retrieveChangesSince()
+	public static final int MAX_CHANGES = 1000;
+
+	//The name of the outbox_cursor row that holds the last sequence number that the cleanup job deleted
+	static final String RETENTION_CURSOR = "retention";
+
+	// @formatter:off
+	private static final String INSERT_CHANGE_SQL = "insert into catalog_change "
+			+ "(change_type, city_id, attraction_id, category_id, previous_city_id, attraction_ids, created_at) "
+			+ "values (?, ?, ?, ?, ?, ?, ?)";
+	// @formatter:on
+
+	@Autowired
+	private CatalogChangeDao catalogChangeDao;
+
+	@Autowired
+	private OutboxCursorDao outboxCursorDao;
+
+	//Inserts the changes of a transaction in one JDBC batch, because the IDENTITY primary key stops Hibernate from
+	//batching inserts
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	//Used to flush the writes of the transaction before its changes are inserted
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${world-attractions.outbox.retention:7d}")
+	private Duration retention;
+
+	//Collects the changes of the event in the publisher's transaction. The changes of a transaction are inserted
+	//together just before it commits, so the rows commit or roll back with the writes. A change published outside a
+	//transaction is inserted at once.
+	@EventListener
+	public void onCatalogChange(CatalogChangeEvent event) {
+		List<CatalogChange> changes = createChanges(event);
+
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			insertChanges(changes);
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<CatalogChange> pending = (List<CatalogChange>) TransactionSynchronizationManager.getResource(this);
+
+		if (Objects.isNull(pending)) {
+			List<CatalogChange> transactionChanges = new ArrayList<>();
+
+			TransactionSynchronizationManager.bindResource(this, transactionChanges);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					flush();
+					insertChanges(transactionChanges);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource(CatalogOutbox.this);
+				}
+			});
+
+			pending = transactionChanges;
+		}
+
+		pending.addAll(changes);
+	}
+
+	//Flushes the writes of the transaction, so they take their row locks before the outbox rows are inserted, as they
+	//would in JPA. The transaction manager only translates the exceptions of the commit itself, so a version conflict
+	//found by this flush is translated here into the OptimisticLockingFailureException that the writes are retried on.
+	private void flush() {
+		try {
+			entityManager.flush();
+		} catch (RuntimeException e) {
+			DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+			throw Objects.isNull(translated) ? e : translated;
+		}
+	}
+
+	//Retrieves up to limit changes after the cursor in sequence order. The nextCursor of the page is the sequence number
+	//of the last change, or the cursor that was passed if there are no new changes. Changes are only listed once the
+	//relay has numbered them, so a change that commits late is never skipped.
+	@Transactional(readOnly = true)
+	public ChangePage retrieveChangesSince(long since, int limit) {
+		if (since < 0) {
+			throw new IllegalArgumentException("The cursor must not be negative.");
+		}
+
+		if (limit < 1 || limit > MAX_CHANGES) {
+			throw new IllegalArgumentException("Limit must be between 1 and " + MAX_CHANGES + ".");
+		}
+
+		long deletedUpTo = outboxCursorDao.findById(RETENTION_CURSOR).map(OutboxCursor::getLastChangeId).orElse(0L);
+		boolean resyncRequired = since < deletedUpTo;
+
+		// @formatter:off
+		List<CatalogChangeData> changes = catalogChangeDao
+				.findBySequenceNumberGreaterThanOrderBySequenceNumberAsc(Math.max(since, deletedUpTo),
+						PageRequest.ofSize(limit))
+				.stream()
+				.map(CatalogChangeData::new)
+				.toList();
+		// @formatter:on
+
+		long nextCursor = changes.isEmpty() ? Math.max(since, deletedUpTo)
+				: changes.get(changes.size() - 1).getSequenceNumber();
+		return new ChangePage(changes, nextCursor, resyncRequired);
+	}
+
+	//Deletes the numbered changes that are older than the retention time and records the last deleted sequence number,
+	//so a consumer behind it can be told that it missed changes. The retention row is locked, so two instances do not
+	//clean up at once.
+	@Scheduled(fixedDelayString = "${world-attractions.outbox.cleanup-interval:PT1H}")
+	@Transactional
+	public void deleteExpiredChanges() {
+		outboxCursorDao.createIfMissing(RETENTION_CURSOR);
+
+		OutboxCursor cursor = outboxCursorDao.findAndLock(RETENTION_CURSOR).orElseThrow();
+		Long lastSequenceNumber = catalogChangeDao.findLastSequenceNumberBefore(Instant.now().minus(retention));
+
+		if (Objects.isNull(lastSequenceNumber) || lastSequenceNumber <= cursor.getLastChangeId()) {
+			return;
+		}
+
+		int deleted = catalogChangeDao.deleteUpTo(lastSequenceNumber);
+		cursor.setLastChangeId(lastSequenceNumber);
+
+		log.info("Deleted {} catalog changes up to sequence number {} from the outbox", deleted, lastSequenceNumber);
+	}
+
+	//Creates the outbox rows of the event. The feed has one CITY_SAVED change for each city of a CITIES_SAVED event, so
+	//its consumers see imported cities in the same way as saved ones.
+	private List<CatalogChange> createChanges(CatalogChangeEvent event) {
+		if (event.getChangeType() == CatalogChangeEvent.ChangeType.CITIES_SAVED) {
+			return event.getCityIds().stream().sorted().map(cityId -> createChange(CatalogChangeEvent.citySaved(cityId)))
+					.toList();
+		}
+
+		return List.of(createChange(event));
+	}
+
+	private CatalogChange createChange(CatalogChangeEvent event) {
+		CatalogChange change = new CatalogChange();
+
+		change.setChangeType(event.getChangeType().name());
+		change.setCityId(event.getCityId());
+		change.setAttractionId(event.getAttractionId());
+		change.setCategoryId(event.getCategoryId());
+		change.setPreviousCityId(event.getPreviousCityId());
+		change.setCreatedAt(Instant.now());
+
+		if (Objects.nonNull(event.getAttractionIds()) && !event.getAttractionIds().isEmpty()) {
+			change.setAttractionIds(
+					event.getAttractionIds().stream().sorted().map(String::valueOf).collect(Collectors.joining(",")));
+		}
+
+		return change;
+	}
+
+	private void insertChanges(List<CatalogChange> changes) {
+		// @formatter:off
+		List<Object[]> rows = changes.stream()
+				.map(change -> new Object[] {change.getChangeType(), change.getCityId(), change.getAttractionId(),
+						change.getCategoryId(), change.getPreviousCityId(), change.getAttractionIds(),
+						Timestamp.from(change.getCreatedAt())})
+				.toList();
+		// @formatter:on
+
+		jdbcTemplate.batchUpdate(INSERT_CHANGE_SQL, rows);
+	}
+}
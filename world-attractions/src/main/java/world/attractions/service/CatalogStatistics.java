@@ -0,0 +1,443 @@
+package world.attractions.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.AttractionStatistics;
+import world.attractions.dao.AttractionDao;
+import world.attractions.dao.AttractionTotals;
+import world.attractions.dao.CategoryDao;
+import world.attractions.dao.CityDao;
+import world.attractions.dao.CityGrouping;
+import world.attractions.dao.PrimaryTransactionTemplate;
+import world.attractions.entity.Category;
+
+//Keeps the attraction aggregates of each country and category in memory, so a read returns a value that is already
+//computed instead of scanning the attraction table.
+//The totals of each city's attractions are kept as well. When a catalog write commits, the totals of the cities that
+//it changed are read again with one grouped query over their attractions, and the difference from the old totals is
+//added to the cities' countries and categories. A full rebuild reads every city in chunks when the application starts
+//and on a schedule, so the totals cannot drift from the tables, for example after rows were changed with SQL.
+//The reads run without a lock, and only the update of the aggregates holds it, so the writes that trigger the reads do
+//not wait for each other and no virtual thread is pinned during a query. Each read gets a ticket before it starts, and
+//a read is only applied to a city or category if no read with a later ticket has been applied to it, so an older read
+//never replaces a newer one.
+
+@Component
+@Slf4j
+public class CatalogStatistics {
+
+	//The number of cities whose attractions are added up by one query of the rebuild or of a reload
+	private static final int REBUILD_CHUNK_SIZE = 500;
+
+	//The number of decimal places of the average ticket prices
+	private static final int PRICE_SCALE = 2;
+
+	@Autowired
+	private CityDao cityDao;
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	@Autowired
+	private CategoryDao categoryDao;
+
+	//Rebuilds the aggregates when the application starts. It can be turned off for tools that do not read them.
+	@Value("${world-attractions.stats.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup;
+
+	//Reads on the primary, so a replica that is behind cannot undo a write that was just applied
+	private final TransactionTemplate readOnlyTransaction;
+
+	private volatile Aggregates aggregates = new Aggregates(0);
+
+	//Hands out the tickets of the reads in the order they start. A read sees every write that committed before its
+	//ticket was taken.
+	private final AtomicLong readTickets = new AtomicLong();
+
+	//Stops a scheduled rebuild from starting while the startup rebuild is still running
+	private final Object rebuildLock = new Object();
+
+	//The cities and categories that changed while the aggregates were being rebuilt. They are read again after the new
+	//aggregates replace the old ones. They are null when no rebuild is running.
+	private Set<Long> citiesChangedDuringRebuild;
+	private Set<Long> categoriesChangedDuringRebuild;
+
+	public CatalogStatistics(PlatformTransactionManager transactionManager) {
+		//The aggregates are updated after the writing transaction commits, so the reads run in a new transaction
+		readOnlyTransaction = new PrimaryTransactionTemplate(transactionManager);
+		readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (rebuildOnStartup) {
+			rebuild();
+		}
+	}
+
+	//Rebuilds the aggregates every rebuild-interval after the application starts
+	@Scheduled(fixedDelayString = "${world-attractions.stats.rebuild-interval:PT6H}",
+			initialDelayString = "${world-attractions.stats.rebuild-interval:PT6H}")
+	public void rebuildOnSchedule() {
+		rebuild();
+	}
+
+	//Builds new aggregates from the city and attraction tables in keyset chunks of cities and replaces the old ones
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.currentTimeMillis();
+			Long lastCityId = 0L;
+			List<Long> cityIds;
+
+			synchronized (this) {
+				citiesChangedDuringRebuild = new HashSet<>();
+				categoriesChangedDuringRebuild = new HashSet<>();
+			}
+
+			//Reloads that started before the rebuild cannot replace what it reads
+			Aggregates newAggregates = new Aggregates(readTickets.incrementAndGet());
+
+			for (Category category : readOnlyTransaction.execute(status -> categoryDao.findAll())) {
+				newAggregates.putCategoryName(category.getCategoryId(), category.getCategoryName(),
+						newAggregates.floorTicket);
+			}
+
+			do {
+				Long afterCityId = lastCityId;
+				cityIds = readOnlyTransaction.execute(
+						status -> cityDao.findCityIdsAfter(afterCityId, PageRequest.of(0, REBUILD_CHUNK_SIZE)));
+
+				readCities(cityIds).forEach((cityId, entry) -> newAggregates.putCity(cityId, entry,
+						newAggregates.floorTicket));
+				lastCityId = cityIds.isEmpty() ? lastCityId : cityIds.get(cityIds.size() - 1);
+			} while (cityIds.size() == REBUILD_CHUNK_SIZE);
+
+			Set<Long> changedCities;
+			Set<Long> changedCategories;
+
+			synchronized (this) {
+				aggregates = newAggregates;
+				changedCities = citiesChangedDuringRebuild;
+				changedCategories = categoriesChangedDuringRebuild;
+				citiesChangedDuringRebuild = null;
+				categoriesChangedDuringRebuild = null;
+			}
+
+			changedCategories.forEach(this::reloadCategory);
+			reloadCities(changedCities);
+
+			log.info("Aggregated the attractions of {} cities in {} ms", newAggregates.cities.size(),
+					System.currentTimeMillis() - start);
+		}
+	}
+
+	//Reads the totals of the cities that a committed catalog write changed and updates their countries and categories.
+	//An attraction that moved changes the totals of the city it left too.
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChange(CatalogChangeEvent event) {
+		switch (event.getChangeType()) {
+			case CITY_SAVED, CITY_DELETED -> reloadCities(List.of(event.getCityId()));
+			case CITIES_SAVED -> reloadCities(event.getCityIds());
+
+			case ATTRACTION_SAVED, ATTRACTION_DELETED -> reloadCities(Stream.of(event.getCityId(),
+					event.getPreviousCityId()).filter(Objects::nonNull).collect(Collectors.toSet()));
+
+			//Saving a category can rename it and link it to the city
+			case CATEGORY_SAVED -> {
+				reloadCategory(event.getCategoryId());
+				reloadCities(List.of(event.getCityId()));
+			}
+		}
+	}
+
+	//Returns the aggregates of every country that has cities, by country name
+	public List<AttractionStatistics> retrieveCountryStatistics() {
+		return aggregates.countries.values().stream()
+				.sorted(Comparator.comparing(AttractionStatistics::getCountry)).toList();
+	}
+
+	//Returns the aggregates of the country's attractions
+	public AttractionStatistics retrieveCountryStatistics(String country) {
+		AttractionStatistics statistics = aggregates.countries.get(country);
+
+		if (Objects.isNull(statistics)) {
+			throw new NoSuchElementException("Country " + country + " has no cities.");
+		}
+
+		return statistics;
+	}
+
+	//Returns the aggregates of every category that has cities, by category ID
+	public List<AttractionStatistics> retrieveCategoryStatistics() {
+		return aggregates.categories.values().stream()
+				.sorted(Comparator.comparing(AttractionStatistics::getCategoryId)).toList();
+	}
+
+	//Returns the aggregates of the attractions of the cities in the category. A category without cities has zero
+	//totals.
+	public AttractionStatistics retrieveCategoryStatistics(Long categoryId) {
+		Aggregates current = aggregates;
+		AttractionStatistics statistics = current.categories.get(categoryId);
+
+		if (Objects.nonNull(statistics)) {
+			return statistics;
+		}
+
+		if (!current.categoryNames.containsKey(categoryId)) {
+			throw new NoSuchElementException("Category with ID=" + categoryId + " does not exist.");
+		}
+
+		return Totals.EMPTY.toStatistics(null, categoryId, current.categoryNames.get(categoryId));
+	}
+
+	//Reads the groups and totals of the cities and replaces them in the aggregates. A city that no longer exists is
+	//removed. The cities are read REBUILD_CHUNK_SIZE at a time, each chunk in one transaction, and only the update of
+	//each chunk holds the lock.
+	private void reloadCities(Collection<Long> cityIds) {
+		synchronized (this) {
+			if (Objects.nonNull(citiesChangedDuringRebuild)) {
+				citiesChangedDuringRebuild.addAll(cityIds);
+			}
+		}
+
+		List<Long> ids = List.copyOf(cityIds);
+
+		for (int from = 0; from < ids.size(); from += REBUILD_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(from, Math.min(from + REBUILD_CHUNK_SIZE, ids.size()));
+			long ticket = readTickets.incrementAndGet();
+			Map<Long, CityEntry> cities = readCities(chunk);
+
+			synchronized (this) {
+				for (Long cityId : chunk) {
+					aggregates.putCity(cityId, cities.get(cityId), ticket);
+				}
+			}
+		}
+	}
+
+	private void reloadCategory(Long categoryId) {
+		synchronized (this) {
+			if (Objects.nonNull(categoriesChangedDuringRebuild)) {
+				categoriesChangedDuringRebuild.add(categoryId);
+			}
+		}
+
+		long ticket = readTickets.incrementAndGet();
+		Optional<Category> category = readOnlyTransaction.execute(status -> categoryDao.findById(categoryId));
+
+		if (category.isPresent()) {
+			synchronized (this) {
+				aggregates.putCategoryName(categoryId, category.get().getCategoryName(), ticket);
+			}
+		}
+	}
+
+	//Reads the country, categories and attraction totals of each city with one query for the groups and one for the
+	//totals
+	private Map<Long, CityEntry> readCities(Collection<Long> cityIds) {
+		if (cityIds.isEmpty()) {
+			return Map.of();
+		}
+
+		return readOnlyTransaction.execute(status -> {
+			Map<Long, String> countries = new HashMap<>();
+			Map<Long, Set<Long>> categoryIds = new HashMap<>();
+			Map<Long, Totals> totals = new HashMap<>();
+
+			for (CityGrouping grouping : cityDao.findGroupingsByCityIdIn(cityIds)) {
+				countries.put(grouping.getCityId(), grouping.getCountry());
+				Set<Long> cityCategoryIds = categoryIds.computeIfAbsent(grouping.getCityId(), id -> new HashSet<>());
+
+				if (Objects.nonNull(grouping.getCategoryId())) {
+					cityCategoryIds.add(grouping.getCategoryId());
+				}
+			}
+
+			for (AttractionTotals row : attractionDao.findTotalsByCityIdIn(cityIds)) {
+				totals.merge(row.getCityId(), Totals.of(row), (a, b) -> a.plus(b, 1));
+			}
+
+			Map<Long, CityEntry> cities = new HashMap<>();
+
+			for (Map.Entry<Long, String> country : countries.entrySet()) {
+				Long cityId = country.getKey();
+				Totals cityTotals = totals.getOrDefault(cityId, Totals.EMPTY).plus(Totals.ONE_CITY, 1);
+
+				cities.put(cityId, new CityEntry(country.getValue(), Set.copyOf(categoryIds.get(cityId)), cityTotals));
+			}
+
+			return cities;
+		});
+	}
+
+	//The country, categories and attraction totals of one city
+	private record CityEntry(String country, Set<Long> categoryIds, Totals totals) {
+	}
+
+	//The sum of the price amounts in one currency and the number of prices that were added
+	private record PriceTotal(BigDecimal sum, long count) {
+	}
+
+	//The totals of a group of attractions
+	private record Totals(long cities, long attractions, long visitorsYearly, Map<String, PriceTotal> prices) {
+
+		private static final Totals EMPTY = new Totals(0, 0, 0, Map.of());
+		private static final Totals ONE_CITY = new Totals(1, 0, 0, Map.of());
+
+		//Converts a row of attraction totals. Amounts without a currency cannot be averaged with any other amount, so
+		//they are left out of the prices.
+		private static Totals of(AttractionTotals row) {
+			Map<String, PriceTotal> prices = Map.of();
+
+			if (Objects.nonNull(row.getTicketPriceCurrency()) && row.getPricedCount() > 0) {
+				PriceTotal price = new PriceTotal(row.getTicketPriceSum(), row.getPricedCount());
+				prices = Map.of(row.getTicketPriceCurrency(), price);
+			}
+
+			return new Totals(0, row.getAttractionCount(), Objects.requireNonNullElse(row.getVisitorsYearly(), 0L),
+					prices);
+		}
+
+		//Returns these totals with the other totals added, or subtracted if the sign is -1
+		private Totals plus(Totals other, int sign) {
+			Map<String, PriceTotal> sumPrices = new HashMap<>(prices);
+
+			other.prices.forEach((currency, price) -> {
+				PriceTotal current = sumPrices.getOrDefault(currency, new PriceTotal(BigDecimal.ZERO, 0));
+				BigDecimal amount = sign > 0 ? current.sum().add(price.sum()) : current.sum().subtract(price.sum());
+				long count = current.count() + sign * price.count();
+
+				if (count == 0) {
+					sumPrices.remove(currency);
+				} else {
+					sumPrices.put(currency, new PriceTotal(amount, count));
+				}
+			});
+
+			return new Totals(cities + sign * other.cities, attractions + sign * other.attractions,
+					visitorsYearly + sign * other.visitorsYearly, Map.copyOf(sumPrices));
+		}
+
+		private AttractionStatistics toStatistics(String country, Long categoryId, String categoryName) {
+			Map<String, BigDecimal> averages = new TreeMap<>();
+
+			prices.forEach((currency, price) -> averages.put(currency,
+					price.sum().divide(BigDecimal.valueOf(price.count()), PRICE_SCALE, RoundingMode.HALF_UP)));
+
+			return new AttractionStatistics(country, categoryId, categoryName, cities, attractions, visitorsYearly,
+					averages);
+		}
+	}
+
+	//The totals of every city, country and category. They are only changed while the CatalogStatistics lock is held,
+	//or before they are published by a rebuild. The reads use the statistics maps, which hold a finished
+	//AttractionStatistics for each group and are replaced group by group.
+	//The ticket of the last read applied to each city and category is kept, and reads with an earlier ticket are
+	//ignored. A city or category that no read has been applied to yet has the ticket of the rebuild that built them.
+	private static class Aggregates {
+		private final long floorTicket;
+		private final Map<Long, Long> cityTickets = new HashMap<>();
+		private final Map<Long, Long> categoryTickets = new HashMap<>();
+		private final Map<Long, CityEntry> cities = new HashMap<>();
+		private final Map<String, Totals> countryTotals = new HashMap<>();
+		private final Map<Long, Totals> categoryTotals = new HashMap<>();
+		private final Map<Long, String> categoryNames = new ConcurrentHashMap<>();
+		private final Map<String, AttractionStatistics> countries = new ConcurrentHashMap<>();
+		private final Map<Long, AttractionStatistics> categories = new ConcurrentHashMap<>();
+
+		private Aggregates(long floorTicket) {
+			this.floorTicket = floorTicket;
+		}
+
+		//Replaces the city's entry, or removes it if the entry is null. The old entry is subtracted from the totals of
+		//its groups and the new entry is added to the totals of its groups. Nothing changes if a read with a later
+		//ticket was applied to the city.
+		private void putCity(Long cityId, CityEntry entry, long ticket) {
+			if (ticket < cityTickets.getOrDefault(cityId, floorTicket)) {
+				return;
+			}
+
+			cityTickets.put(cityId, ticket);
+			CityEntry old = Objects.isNull(entry) ? cities.remove(cityId) : cities.put(cityId, entry);
+
+			if (Objects.nonNull(old)) {
+				addToGroups(old, -1);
+			}
+
+			if (Objects.nonNull(entry)) {
+				addToGroups(entry, 1);
+			}
+		}
+
+		private void putCategoryName(Long categoryId, String categoryName, long ticket) {
+			if (ticket < categoryTickets.getOrDefault(categoryId, floorTicket)) {
+				return;
+			}
+
+			categoryTickets.put(categoryId, ticket);
+			categoryNames.put(categoryId, categoryName);
+			Totals totals = categoryTotals.get(categoryId);
+
+			if (Objects.nonNull(totals)) {
+				categories.put(categoryId, totals.toStatistics(null, categoryId, categoryName));
+			}
+		}
+
+		//A city without a country is only counted in its categories
+		private void addToGroups(CityEntry city, int sign) {
+			if (Objects.nonNull(city.country())) {
+				Totals totals = countryTotals.getOrDefault(city.country(), Totals.EMPTY).plus(city.totals(), sign);
+
+				if (totals.cities() == 0) {
+					countryTotals.remove(city.country());
+					countries.remove(city.country());
+				} else {
+					countryTotals.put(city.country(), totals);
+					countries.put(city.country(), totals.toStatistics(city.country(), null, null));
+				}
+			}
+
+			for (Long categoryId : city.categoryIds()) {
+				Totals totals = categoryTotals.getOrDefault(categoryId, Totals.EMPTY).plus(city.totals(), sign);
+
+				if (totals.cities() == 0) {
+					categoryTotals.remove(categoryId);
+					categories.remove(categoryId);
+				} else {
+					categoryTotals.put(categoryId, totals);
+					categories.put(categoryId, totals.toStatistics(null, categoryId, categoryNames.get(categoryId)));
+				}
+			}
+		}
+	}
+}
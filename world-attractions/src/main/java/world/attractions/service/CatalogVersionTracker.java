@@ -0,0 +1,70 @@
+package world.attractions.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import world.attractions.dao.OutboxCursorDao;
+import world.attractions.dao.ReplicaRoutingDataSource;
+import world.attractions.entity.OutboxCursor;
+
+//Keeps the catalog version that the ETags of the list endpoints are made from. The version is the last sequence number
+//that OutboxRelay gave to a committed change, so every instance of the application sees the same version without the
+//writers sharing a lock. The version is kept in memory and read again after each run of the relay, so a request does
+//not read it from the database, and an ETag can lag a write by up to world-attractions.outbox.relay-interval.
+//The version only counts changes that have committed, so a client never sees the new version before the new data.
+//With read replicas, the data of a request may come from a replica that is behind the primary. The version is then
+//read from the replica that the request sticks to, before the data, so the ETag is never newer than the data.
+
+@Component
+public class CatalogVersionTracker {
+
+	@Autowired
+	private OutboxCursorDao outboxCursorDao;
+
+	@Value("${world-attractions.replicas.enabled:false}")
+	private boolean replicasEnabled;
+
+	//Reads the version on the replica that the request reads its data from
+	private final TransactionTemplate readOnlyTransaction;
+
+	//-1 until the version is first read
+	private final AtomicLong version = new AtomicLong(-1);
+
+	public CatalogVersionTracker(PlatformTransactionManager transactionManager) {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	//Reads the last sequence number that was assigned from the primary. OutboxRelay calls it after numbering the
+	//committed changes. The version never moves back, so a slow read cannot replace a newer version.
+	public void refresh() {
+		long sequenceNumber = ReplicaRoutingDataSource.callOnPrimary(this::readSequenceNumber);
+		version.accumulateAndGet(sequenceNumber, Math::max);
+	}
+
+	//Returns the weak ETag of the catalog. It is weak because the same version is sent with and without gzip.
+	public String getETag() {
+		if (replicasEnabled) {
+			return toETag(readOnlyTransaction.execute(status -> readSequenceNumber()));
+		}
+
+		if (version.get() < 0) {
+			refresh();
+		}
+
+		return toETag(version.get());
+	}
+
+	private long readSequenceNumber() {
+		return outboxCursorDao.findById(OutboxRelay.SEQUENCE_CURSOR).map(OutboxCursor::getLastChangeId).orElse(0L);
+	}
+
+	private static String toETag(long version) {
+		return "W/\"catalog-" + version + "\"";
+	}
+}
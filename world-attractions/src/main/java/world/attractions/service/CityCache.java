@@ -0,0 +1,306 @@
+package world.attractions.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.dao.ReplicaRoutingDataSource;
+
+//A bounded cache of the CityData and CityAttraction objects that the CityService class returns. It holds the DTOs
+//instead of entities, so a cached value never needs a persistence context. Entries are evicted after a catalog
+//write commits.
+//The caches hold futures. The thread that misses loads the value on its own thread, in its own transaction, after the
+//future is in the cache, so no lock is held while it waits on the database. A virtual thread that loads a value
+//therefore never pins its carrier thread, and other threads that miss on the same key wait for the same load.
+//Loads go to the replicas when they are enabled. A city or attraction that a write evicted within the read-your-writes
+//window is loaded from the primary instead, so a replica that has not applied the write yet cannot put the old value
+//back in the cache for every client.
+
+@Component
+public class CityCache implements MeterBinder {
+
+	private final AsyncCache<Long, CityData> cities;
+	private final AsyncCache<Long, CachedAttraction> attractions;
+
+	//Maps a category ID to the IDs of the cached cities that list the category. When a category is renamed, the cities
+	//in it are evicted because their CityData contains the old name.
+	private final Map<Long, Set<Long>> categoryCities = new ConcurrentHashMap<>();
+
+	//The IDs of the cities and attractions that a write evicted within the read-your-writes window
+	private final Cache<Long, Boolean> writtenCities;
+	private final Cache<Long, Boolean> writtenAttractions;
+
+	//Creates the caches with the maximum size and time to live that are set in application.yaml
+	public CityCache(@Value("${world-attractions.cache.maximum-size:10000}") long maximumSize,
+			@Value("${world-attractions.cache.time-to-live:10m}") Duration timeToLive,
+			@Value("${world-attractions.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+		// @formatter:off
+		cities = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.evictionListener((Long cityId, CityData cityData, RemovalCause cause) ->
+						removeCategoryCities(cityId, cityData))
+				.recordStats()
+				.buildAsync();
+
+		attractions = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.buildAsync();
+
+		writtenCities = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(readYourWritesWindow)
+				.build();
+
+		writtenAttractions = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(readYourWritesWindow)
+				.build();
+		// @formatter:on
+	}
+
+	//Returns the cached city. If the city is not cached, it is loaded with the loader and added to the cache.
+	public CityData getCity(Long cityId, Function<Long, CityData> loader) {
+		return get(cities, cityId, id -> {
+			CityData cityData = loadAfterWrites(writtenCities, id, loader);
+
+			for (CityCategory category : cityData.getCategories()) {
+				categoryCities.computeIfAbsent(category.getCategoryId(), key -> ConcurrentHashMap.newKeySet()).add(id);
+			}
+
+			return cityData;
+		});
+	}
+
+	//Returns the cached attraction and the ID of its city. If the attraction is not cached, it is loaded with the loader
+	//and added to the cache.
+	public CachedAttraction getAttraction(Long attractionId, Function<Long, CachedAttraction> loader) {
+		return get(attractions, attractionId, id -> loadAfterWrites(writtenAttractions, id, loader));
+	}
+
+	//Loads the value with the loader. If a write evicted the key within the read-your-writes window, the loader reads
+	//from the primary.
+	private static <V> V loadAfterWrites(Cache<Long, Boolean> written, Long key, Function<Long, V> loader) {
+		if (Objects.isNull(written.getIfPresent(key))) {
+			return loader.apply(key);
+		}
+
+		return ReplicaRoutingDataSource.callOnPrimary(() -> loader.apply(key));
+	}
+
+	//Returns the cached cities with the IDs. The cities that are not cached are loaded together with one call to the
+	//loader. IDs that the loader does not return are left out of the result and are not cached.
+	public Map<Long, CityData> getCities(Collection<Long> cityIds, Function<Set<Long>, Map<Long, CityData>> loader) {
+		return getAll(cities, cityIds, ids -> {
+			Map<Long, CityData> loaded = loader.apply(ids);
+
+			loaded.forEach((id, cityData) -> {
+				for (CityCategory category : cityData.getCategories()) {
+					categoryCities.computeIfAbsent(category.getCategoryId(), key -> ConcurrentHashMap.newKeySet()).add(id);
+				}
+			});
+
+			return loaded;
+		});
+	}
+
+	//Returns the cached attractions with the IDs and the IDs of their cities. The attractions that are not cached are
+	//loaded together with one call to the loader.
+	public Map<Long, CachedAttraction> getAttractions(Collection<Long> attractionIds,
+			Function<Set<Long>, Map<Long, CachedAttraction>> loader) {
+		return getAll(attractions, attractionIds, loader);
+	}
+
+	//Returns the value of the key. On a miss, an empty future is put in the cache and the calling thread completes it
+	//with the loader. A load that fails with any exception or error is removed from the cache, and what it threw is
+	//thrown to every thread that waited for it. If the key is evicted while it loads, the caller still gets the value but the cache
+	//does not keep it. The CityReadModel class loads its values the same way.
+	static <V> V get(AsyncCache<Long, V> cache, Long key, Function<Long, V> loader) {
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> future = cache.get(key, (id, executor) -> created);
+
+		if (future == created) {
+			try {
+				created.complete(loader.apply(key));
+			} catch (Throwable e) {
+				created.completeExceptionally(e);
+				cache.asMap().remove(key, created);
+			}
+		}
+
+		return join(future);
+	}
+
+	//Returns the values of the keys. The keys that are missing are loaded by the calling thread with one call to the
+	//loader, after Caffeine has put their futures in the cache, in the same way as get().
+	static <V> Map<Long, V> getAll(AsyncCache<Long, V> cache, Collection<Long> keys, Function<Set<Long>, Map<Long, V>> loader) {
+		CompletableFuture<Map<Long, V>> created = new CompletableFuture<>();
+		List<Set<Long>> missingKeys = new ArrayList<>(1);
+
+		CompletableFuture<Map<Long, V>> future = cache.getAll(keys, (missing, executor) -> {
+			missingKeys.add(Set.copyOf(missing));
+			return created;
+		});
+
+		if (!missingKeys.isEmpty()) {
+			try {
+				created.complete(loader.apply(missingKeys.get(0)));
+			} catch (Throwable e) {
+				created.completeExceptionally(e);
+				removeFailed(cache, missingKeys.get(0));
+			}
+		}
+
+		return join(future);
+	}
+
+	//Removes the failed futures of the keys. A future that another thread has put in the cache since is kept.
+	private static <V> void removeFailed(AsyncCache<Long, V> cache, Set<Long> keys) {
+		for (Long key : keys) {
+			CompletableFuture<V> entry = cache.getIfPresent(key);
+
+			if (Objects.nonNull(entry) && entry.isCompletedExceptionally()) {
+				cache.asMap().remove(key, entry);
+			}
+		}
+	}
+
+	//Waits for the future and throws the exception or error of a failed load as it was thrown by the loader
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+
+			throw e;
+		}
+	}
+
+	//Evicts the entries that a committed catalog write made stale. If the write did not run in a transaction, the
+	//entries are evicted right away.
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChange(CatalogChangeEvent event) {
+		switch (event.getChangeType()) {
+			case CITY_SAVED -> evictCity(event.getCityId());
+			case CITIES_SAVED -> event.getCityIds().forEach(this::evictCity);
+
+			case CITY_DELETED -> {
+				evictCity(event.getCityId());
+				event.getAttractionIds().forEach(this::evictAttraction);
+			}
+
+			case ATTRACTION_SAVED, ATTRACTION_DELETED -> {
+				evictAttraction(event.getAttractionId());
+				evictCity(event.getCityId());
+				evictCity(event.getPreviousCityId());
+			}
+
+			case CATEGORY_SAVED -> {
+				evictCity(event.getCityId());
+				List.copyOf(categoryCities.getOrDefault(event.getCategoryId(), Set.of())).forEach(this::evictCity);
+			}
+		}
+	}
+
+	//Publishes the size, hit, miss and eviction metrics of each cache. Actuator calls this for every MeterBinder bean.
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cities.synchronous(), "cities");
+		CaffeineCacheMetrics.monitor(registry, attractions.synchronous(), "attractions");
+	}
+
+	//Returns the hit, miss and eviction counts of each cache
+	public Map<String, Map<String, Object>> getStatistics() {
+		Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+
+		statistics.put("cities", toMap(cities.synchronous().stats(), cities.synchronous().estimatedSize()));
+		statistics.put("attractions", toMap(attractions.synchronous().stats(), attractions.synchronous().estimatedSize()));
+
+		return statistics;
+	}
+
+	//Removes the city from the cache and from the category mapping, and notes the write. A city that is still loading is
+	//removed from the cache, and its categories are left in the mapping.
+	private void evictCity(Long cityId) {
+		if (Objects.nonNull(cityId)) {
+			writtenCities.put(cityId, Boolean.TRUE);
+			CompletableFuture<CityData> removed = cities.asMap().remove(cityId);
+
+			if (Objects.nonNull(removed) && removed.isDone() && !removed.isCompletedExceptionally()) {
+				removeCategoryCities(cityId, removed.join());
+			}
+		}
+	}
+
+	//Removes the attraction from the cache and notes the write
+	private void evictAttraction(Long attractionId) {
+		if (Objects.nonNull(attractionId)) {
+			writtenAttractions.put(attractionId, Boolean.TRUE);
+			attractions.synchronous().invalidate(attractionId);
+		}
+	}
+
+	//Removes a city that was evicted or expired from the category mapping
+	private void removeCategoryCities(Long cityId, CityData cityData) {
+		if (Objects.isNull(cityId) || Objects.isNull(cityData)) {
+			return;
+		}
+
+		for (CityCategory category : cityData.getCategories()) {
+			Set<Long> cityIds = categoryCities.get(category.getCategoryId());
+
+			if (Objects.nonNull(cityIds)) {
+				cityIds.remove(cityId);
+			}
+		}
+	}
+
+	private Map<String, Object> toMap(CacheStats stats, long size) {
+		Map<String, Object> values = new LinkedHashMap<>();
+
+		values.put("size", size);
+		values.put("hitCount", stats.hitCount());
+		values.put("missCount", stats.missCount());
+		values.put("hitRate", stats.hitRate());
+		values.put("evictionCount", stats.evictionCount());
+
+		return values;
+	}
+
+	//A cached attraction together with the ID of the city that it belongs to
+	public record CachedAttraction(Long cityId, CityAttraction attraction) {
+	}
+}
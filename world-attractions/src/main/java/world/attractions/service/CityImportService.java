@@ -0,0 +1,391 @@
+package world.attractions.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.controller.model.ImportResult;
+import world.attractions.controller.model.ImportResult.ImportChunk;
+import world.attractions.controller.model.ImportResult.RejectedRow;
+import world.attractions.entity.Attraction;
+
+//This is the service class for bulk imports. Each line of the imported document is a city in the same JSON format as
+//CityData, with its attractions and categories. The rows are written in chunks with JDBC batch inserts instead of
+//JPA, because the IDENTITY primary keys stop Hibernate from batching inserts.
+
+@Service
+@Slf4j
+public class CityImportService {
+
+	//The largest chunk of cities that can be written in one transaction
+	public static final int MAX_BATCH_SIZE = 5000;
+
+	private static final String INSERT_CITY_SQL = "insert into city "
+			+ "(city_name, country, language, currency, safety_level, latitude, longitude) values (?, ?, ?, ?, ?, ?, ?)";
+
+	// @formatter:off
+	private static final String INSERT_ATTRACTION_SQL = "insert into attraction "
+			+ "(attraction_name, description, ticket_price, visitors_yearly, ticket_price_amount, ticket_price_currency, "
+			+ "visitors_yearly_count, latitude, longitude, city_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	// @formatter:on
+
+	private static final String INSERT_CATEGORY_SQL = "insert into category (category_name) values (?)";
+
+	private static final String INSERT_CITY_CATEGORY_SQL = "insert into city_category (city_id, category_id) values (?, ?)";
+
+	private static final String SELECT_CATEGORIES_BY_NAME_SQL = "select category_id, category_name from category "
+			+ "where category_name in (:categoryNames)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	//Publishes a CatalogChangeEvent for each imported chunk so the search index and other derived data include its cities
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private final TransactionTemplate transactionTemplate;
+
+	//The number of cities that are written in each chunk when the request does not pass a batch size
+	@Value("${world-attractions.import.batch-size:500}")
+	private int defaultBatchSize;
+
+	//Creates the TransactionTemplate that each chunk is written in
+	public CityImportService(PlatformTransactionManager transactionManager) {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	//Reads the document one line at a time and writes the cities in chunks of the batch size. Lines that cannot be read
+	//or that fail validation are rejected without stopping the import. If a chunk fails, its rows are written one at a
+	//time so only the rows that fail are rejected.
+	public ImportResult importCities(InputStream input, Integer batchSize) throws IOException {
+		int chunkSize = Objects.isNull(batchSize) ? defaultBatchSize : batchSize;
+
+		if (chunkSize < 1 || chunkSize > MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE + ".");
+		}
+
+		ImportResult result = new ImportResult();
+		List<ImportRow> chunk = new ArrayList<>(chunkSize);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		long lineNumber = 0;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+
+			if (line.isBlank()) {
+				continue;
+			}
+
+			try {
+				CityData cityData = objectMapper.readValue(line, CityData.class);
+				validateRow(cityData);
+				chunk.add(new ImportRow(lineNumber, cityData));
+			} catch (JsonProcessingException e) {
+				result.getRejectedRows().add(new RejectedRow(lineNumber, e.getOriginalMessage()));
+			} catch (IllegalArgumentException e) {
+				result.getRejectedRows().add(new RejectedRow(lineNumber, e.getMessage()));
+			}
+
+			if (chunk.size() == chunkSize) {
+				writeChunk(chunk, result);
+				chunk.clear();
+			}
+		}
+
+		if (!chunk.isEmpty()) {
+			writeChunk(chunk, result);
+		}
+
+		log.info("Imported {} cities and {} attractions in {} chunks, rejected {} rows", result.getImportedCities(),
+				result.getImportedAttractions(), result.getChunks().size(), result.getRejectedRows().size());
+
+		return result;
+	}
+
+	//Checks the fields that are needed to insert the city and its attractions. The import only creates cities, so rows
+	//with a city ID are rejected.
+	private void validateRow(CityData cityData) {
+		if (Objects.nonNull(cityData.getCityId())) {
+			throw new IllegalArgumentException("City ID must not be set on imported cities.");
+		}
+
+		if (Objects.isNull(cityData.getCityName()) || cityData.getCityName().isBlank()) {
+			throw new IllegalArgumentException("City name is required.");
+		}
+
+		GeoGrid.checkCoordinates(cityData.getLatitude(), cityData.getLongitude());
+
+		for (CityAttraction attraction : cityData.getAttractions()) {
+			if (Objects.isNull(attraction.getAttractionName()) || attraction.getAttractionName().isBlank()) {
+				throw new IllegalArgumentException("Attraction name is required.");
+			}
+
+			GeoGrid.checkCoordinates(attraction.getLatitude(), attraction.getLongitude());
+			AttractionNumbers.checkNumericFields(attraction, cityData::getCountry);
+		}
+
+		for (CityCategory category : cityData.getCategories()) {
+			if (Objects.isNull(category.getCategoryId()) && Objects.isNull(category.getCategoryName())) {
+				throw new IllegalArgumentException("Category ID or category name is required.");
+			}
+		}
+	}
+
+	//Writes the chunk in one transaction and records its throughput. If the chunk fails, each row is retried in its own
+	//transaction.
+	private void writeChunk(List<ImportRow> rows, ImportResult result) {
+		long start = System.nanoTime();
+		int importedRows = 0;
+
+		try {
+			transactionTemplate.execute(status -> insertRows(rows));
+			importedRows = rows.size();
+		} catch (DataAccessException e) {
+			log.warn("Chunk {} failed, retrying its rows one at a time: {}", result.getChunks().size() + 1,
+					e.getMostSpecificCause().getMessage());
+
+			for (ImportRow row : rows) {
+				try {
+					transactionTemplate.execute(status -> insertRows(List.of(row)));
+					importedRows++;
+				} catch (DataAccessException rowException) {
+					result.getRejectedRows()
+							.add(new RejectedRow(row.getLineNumber(), rowException.getMostSpecificCause().getMessage()));
+					row.setRejected(true);
+				}
+			}
+		}
+
+		long elapsedNanos = System.nanoTime() - start;
+		double rowsPerSecond = elapsedNanos == 0 ? 0 : importedRows * 1_000_000_000.0 / elapsedNanos;
+
+		result.getChunks().add(new ImportChunk(result.getChunks().size() + 1, rows.size(), importedRows,
+				elapsedNanos / 1_000_000, rowsPerSecond));
+		result.setImportedCities(result.getImportedCities() + importedRows);
+
+		for (ImportRow row : rows) {
+			if (!row.isRejected()) {
+				result.setImportedAttractions(result.getImportedAttractions() + row.getCityData().getAttractions().size());
+			}
+		}
+	}
+
+	//Inserts the cities, then their attractions and category links, with one JDBC batch per table. It returns the IDs of
+	//the new cities.
+	private List<Long> insertRows(List<ImportRow> rows) {
+		List<Long> cityIds = insertCities(rows);
+		insertAttractions(rows, cityIds);
+		insertCityCategories(rows, cityIds);
+		publishCitiesSaved(cityIds);
+		return cityIds;
+	}
+
+	//Publishes one change event for all of the cities in the chunk's transaction. The listeners that update derived data
+	//run once for the chunk after it commits, and not at all if it rolls back.
+	private void publishCitiesSaved(List<Long> cityIds) {
+		eventPublisher.publishEvent(CatalogChangeEvent.citiesSaved(cityIds));
+	}
+
+	//Inserts the cities in one batch and returns their generated IDs in the same order as the rows
+	private List<Long> insertCities(List<ImportRow> rows) {
+		return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_CITY_SQL,
+					Statement.RETURN_GENERATED_KEYS)) {
+
+				for (ImportRow row : rows) {
+					CityData cityData = row.getCityData();
+
+					statement.setString(1, cityData.getCityName());
+					statement.setString(2, cityData.getCountry());
+					statement.setString(3, cityData.getLanguage());
+					statement.setString(4, cityData.getCurrency());
+					statement.setString(5, cityData.getSafetyLevel());
+					statement.setObject(6, cityData.getLatitude(), Types.DOUBLE);
+					statement.setObject(7, cityData.getLongitude(), Types.DOUBLE);
+					statement.addBatch();
+				}
+
+				statement.executeBatch();
+				return readGeneratedKeys(statement, rows.size());
+			}
+		});
+	}
+
+	//Inserts the attractions of all of the cities in one batch
+	private void insertAttractions(List<ImportRow> rows, List<Long> cityIds) {
+		List<Object[]> batchArgs = new ArrayList<>();
+
+		for (int index = 0; index < rows.size(); index++) {
+			CityData cityData = rows.get(index).getCityData();
+
+			for (CityAttraction cityAttraction : cityData.getAttractions()) {
+				Attraction attraction = new Attraction();
+				AttractionNumbers.setNumericFields(attraction, cityAttraction, cityData::getCountry);
+
+				// @formatter:off
+				batchArgs.add(new Object[] {
+						cityAttraction.getAttractionName(),
+						cityAttraction.getDescription(),
+						cityAttraction.getTicketPrice(),
+						cityAttraction.getVisitorsYearly(),
+						attraction.getTicketPriceAmount(),
+						attraction.getTicketPriceCurrency(),
+						attraction.getVisitorsYearlyCount(),
+						cityAttraction.getLatitude(),
+						cityAttraction.getLongitude(),
+						cityIds.get(index)
+				});
+				// @formatter:on
+			}
+		}
+
+		if (!batchArgs.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_ATTRACTION_SQL, batchArgs);
+		}
+	}
+
+	//Links the cities to their categories in one batch. Categories are found by ID or by name, and the names that are
+	//not in the category table yet are inserted first.
+	private void insertCityCategories(List<ImportRow> rows, List<Long> cityIds) {
+		Map<String, Long> categoryIds = findOrCreateCategories(rows);
+		List<Object[]> batchArgs = new ArrayList<>();
+
+		for (int index = 0; index < rows.size(); index++) {
+			Set<Long> cityCategoryIds = new LinkedHashSet<>();
+
+			for (CityCategory category : rows.get(index).getCityData().getCategories()) {
+				Long categoryId = category.getCategoryId();
+				cityCategoryIds.add(Objects.isNull(categoryId) ? categoryIds.get(category.getCategoryName()) : categoryId);
+			}
+
+			for (Long categoryId : cityCategoryIds) {
+				batchArgs.add(new Object[] { cityIds.get(index), categoryId });
+			}
+		}
+
+		if (!batchArgs.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_CITY_CATEGORY_SQL, batchArgs);
+		}
+	}
+
+	//Returns the IDs of the categories that are referenced by name, inserting the ones that do not exist yet
+	private Map<String, Long> findOrCreateCategories(List<ImportRow> rows) {
+		Set<String> categoryNames = new LinkedHashSet<>();
+
+		for (ImportRow row : rows) {
+			for (CityCategory category : row.getCityData().getCategories()) {
+				if (Objects.isNull(category.getCategoryId())) {
+					categoryNames.add(category.getCategoryName());
+				}
+			}
+		}
+
+		Map<String, Long> categoryIds = new HashMap<>();
+
+		if (categoryNames.isEmpty()) {
+			return categoryIds;
+		}
+
+		namedParameterJdbcTemplate.query(SELECT_CATEGORIES_BY_NAME_SQL, Map.of("categoryNames", categoryNames),
+				(ResultSet resultSet) -> {
+					categoryIds.putIfAbsent(resultSet.getString("category_name"), resultSet.getLong("category_id"));
+				});
+
+		List<String> missingNames = categoryNames.stream().filter(name -> !categoryIds.containsKey(name)).toList();
+
+		if (!missingNames.isEmpty()) {
+			List<Long> newIds = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+				try (PreparedStatement statement = connection.prepareStatement(INSERT_CATEGORY_SQL,
+						Statement.RETURN_GENERATED_KEYS)) {
+
+					for (String name : missingNames) {
+						statement.setString(1, name);
+						statement.addBatch();
+					}
+
+					statement.executeBatch();
+					return readGeneratedKeys(statement, missingNames.size());
+				}
+			});
+
+			for (int index = 0; index < missingNames.size(); index++) {
+				categoryIds.put(missingNames.get(index), newIds.get(index));
+			}
+		}
+
+		return categoryIds;
+	}
+
+	//Reads the keys that were generated by a batch insert. If the driver does not return one key per row, the chunk fails.
+	private List<Long> readGeneratedKeys(PreparedStatement statement, int expectedKeys) throws SQLException {
+		List<Long> keys = new ArrayList<>(expectedKeys);
+
+		try (ResultSet resultSet = statement.getGeneratedKeys()) {
+			while (resultSet.next()) {
+				keys.add(resultSet.getLong(1));
+			}
+		}
+
+		if (keys.size() != expectedKeys) {
+			throw new DataRetrievalFailureException(
+					"Expected " + expectedKeys + " generated keys but the database returned " + keys.size() + ".");
+		}
+
+		return keys;
+	}
+
+	//A line of the imported document that passed validation
+	@Data
+	@AllArgsConstructor
+	private static class ImportRow {
+		private final long lineNumber;
+		private final CityData cityData;
+		private boolean rejected;
+
+		ImportRow(long lineNumber, CityData cityData) {
+			this(lineNumber, cityData, false);
+		}
+	}
+}
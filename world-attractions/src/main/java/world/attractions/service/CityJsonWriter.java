@@ -0,0 +1,161 @@
+package world.attractions.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+
+//Writes the JSON of CityData straight from the City entities with a JsonGenerator. No CityData, CityAttraction or
+//CityCategory objects are created and Jackson does not look up their properties, so each value is read from the
+//entity once and encoded once.
+//The bytes are the same as serializing new CityData(city) with the ObjectMapper: the fields are written in the order
+//that CityData declares them, the attractions and categories in the CityData order, and the generator is created by
+//the same ObjectMapper so it has the same features. A field added to CityData has to be added here too.
+
+@Component
+public class CityJsonWriter {
+
+	//The size of a new buffer. Most cities fit in it.
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	//A buffer is dropped instead of returned to the pool when a city made it grow beyond this size
+	private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+	//The most buffers that are kept between calls. The pool is shared by all threads instead of holding one buffer per
+	//thread, so virtual threads, which never run toBytes() twice, reuse buffers too, and at most
+	//MAX_POOLED_BUFFERS * MAX_RETAINED_BUFFER_SIZE bytes are kept.
+	private static final int MAX_POOLED_BUFFERS = 16;
+
+	private final ObjectMapper objectMapper;
+
+	//The buffers that toBytes() writes into, so their arrays are not allocated again for every city
+	private final BlockingQueue<ByteArrayOutputStream> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+	public CityJsonWriter(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	//Creates a UTF-8 generator with the features of the ObjectMapper. Root values are not separated, so the caller can
+	//write its own separator, such as the newline between NDJSON lines. Closing the generator flushes the output stream
+	//but does not close it, so the servlet container can finish the response.
+	public JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+		JsonGenerator generator = objectMapper.createGenerator(outputStream, JsonEncoding.UTF8);
+		generator.setRootValueSeparator(null);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generator;
+	}
+
+	//Returns the JSON of the city. When a pooled buffer is free, the only array that is allocated for it is the returned
+	//one.
+	public byte[] toBytes(City city) {
+		ByteArrayOutputStream buffer = buffers.poll();
+
+		if (Objects.isNull(buffer)) {
+			buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		}
+
+		try (JsonGenerator generator = createGenerator(buffer)) {
+			writeCity(generator, city);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		byte[] bytes = buffer.toByteArray();
+
+		//The buffer is dropped if it grew too large or the pool is full
+		if (bytes.length <= MAX_RETAINED_BUFFER_SIZE) {
+			buffer.reset();
+			buffers.offer(buffer);
+		}
+
+		return bytes;
+	}
+
+	//Writes the city as one JSON object, with the fields of CityData
+	public void writeCity(JsonGenerator generator, City city) throws IOException {
+		generator.writeStartObject();
+		writeNumberField(generator, "cityId", city.getCityId());
+		generator.writeStringField("cityName", city.getCityName());
+		generator.writeStringField("country", city.getCountry());
+		generator.writeStringField("language", city.getLanguage());
+		generator.writeStringField("currency", city.getCurrency());
+		generator.writeStringField("safetyLevel", city.getSafetyLevel());
+		writeNumberField(generator, "latitude", city.getLatitude());
+		writeNumberField(generator, "longitude", city.getLongitude());
+
+		//The collections are copied into one array each to be sorted. Their elements are not copied.
+		Attraction[] attractions = city.getAttractions().toArray(Attraction[]::new);
+		Arrays.sort(attractions, CityData.ATTRACTION_ORDER);
+
+		generator.writeArrayFieldStart("attractions");
+
+		for (Attraction attraction : attractions) {
+			writeAttraction(generator, attraction);
+		}
+
+		generator.writeEndArray();
+
+		Category[] categories = city.getCategories().toArray(Category[]::new);
+		Arrays.sort(categories, CityData.CATEGORY_ORDER);
+
+		generator.writeArrayFieldStart("categories");
+
+		for (Category category : categories) {
+			generator.writeStartObject();
+			writeNumberField(generator, "categoryId", category.getCategoryId());
+			generator.writeStringField("categoryName", category.getCategoryName());
+			generator.writeEndObject();
+		}
+
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
+	//Writes the attraction with the fields of CityAttraction
+	private void writeAttraction(JsonGenerator generator, Attraction attraction) throws IOException {
+		generator.writeStartObject();
+		writeNumberField(generator, "attractionId", attraction.getAttractionId());
+		generator.writeStringField("attractionName", attraction.getAttractionName());
+		generator.writeStringField("description", attraction.getDescription());
+		generator.writeStringField("ticketPrice", attraction.getTicketPrice());
+		generator.writeStringField("visitorsYearly", attraction.getVisitorsYearly());
+		generator.writeNumberField("ticketPriceAmount", attraction.getTicketPriceAmount());
+		generator.writeStringField("ticketPriceCurrency", attraction.getTicketPriceCurrency());
+		writeNumberField(generator, "visitorsYearlyCount", attraction.getVisitorsYearlyCount());
+		writeNumberField(generator, "latitude", attraction.getLatitude());
+		writeNumberField(generator, "longitude", attraction.getLongitude());
+		generator.writeEndObject();
+	}
+
+	//The JsonGenerator number fields take primitives, so the nulls that CityData writes are written here
+	private static void writeNumberField(JsonGenerator generator, String name, Long value) throws IOException {
+		if (Objects.isNull(value)) {
+			generator.writeNullField(name);
+		} else {
+			generator.writeNumberField(name, value.longValue());
+		}
+	}
+
+	private static void writeNumberField(JsonGenerator generator, String name, Double value) throws IOException {
+		if (Objects.isNull(value)) {
+			generator.writeNullField(name);
+		} else {
+			generator.writeNumberField(name, value.doubleValue());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package world.attractions.service;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import world.attractions.dao.CityDao;
+import world.attractions.dao.PrimaryTransactionTemplate;
+
+//Holds the JSON response of GET /city/{cityId} for each city, already serialized. A request for a city that is held is
+//answered by copying its bytes, without reading the database, creating entities or writing JSON.
+//The bytes are kept in direct buffers outside the Java heap, so a large catalog does not add to the heap that the
+//garbage collector copies. The total size is limited by world-attractions.read-model.maximum-size, and the least
+//recently used cities are dropped first.
+//When a write to a city commits, its JSON is dropped and rebuilt by the next request for the city.
+
+@Component
+public class CityReadModel implements MeterBinder {
+
+	private final AsyncCache<Long, CityJson> cityJson;
+
+	//Looks up the cities of a category on the primary after the write that changed it has committed
+	private final TransactionTemplate readOnlyTransaction;
+
+	@Autowired
+	private CityDao cityDao;
+
+	//Creates the map with the maximum size in bytes that is set in application.yaml
+	public CityReadModel(@Value("${world-attractions.read-model.maximum-size:256MB}") DataSize maximumSize,
+			PlatformTransactionManager transactionManager) {
+		readOnlyTransaction = new PrimaryTransactionTemplate(transactionManager);
+		readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		readOnlyTransaction.setReadOnly(true);
+
+		// @formatter:off
+		cityJson = Caffeine.newBuilder()
+				.maximumWeight(maximumSize.toBytes())
+				.weigher((Long cityId, CityJson json) -> json.json().capacity())
+				.recordStats()
+				.buildAsync();
+		// @formatter:on
+	}
+
+	//Returns the city's JSON. If it is not held, the loader writes it, and it is kept.
+	public CityJson getCityJson(Long cityId, Function<Long, byte[]> loader) {
+		return CityCache.get(cityJson, cityId, id -> hold(loader.apply(id)));
+	}
+
+	//Returns the ETag of the city's JSON if it is held, without loading the city or copying the JSON
+	public Optional<String> findEtag(Long cityId) {
+		CompletableFuture<CityJson> held = cityJson.getIfPresent(cityId);
+
+		if (Objects.isNull(held) || !held.isDone() || held.isCompletedExceptionally()) {
+			return Optional.empty();
+		}
+
+		return Optional.of(held.join().etag());
+	}
+
+	//Drops the JSON of the cities that a committed catalog write changed. If the write did not run in a transaction,
+	//the JSON is dropped right away.
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChange(CatalogChangeEvent event) {
+		switch (event.getChangeType()) {
+			case CITY_SAVED, CITY_DELETED -> evict(event.getCityId());
+			case CITIES_SAVED -> cityJson.synchronous().invalidateAll(event.getCityIds());
+
+			case ATTRACTION_SAVED, ATTRACTION_DELETED -> {
+				evict(event.getCityId());
+				evict(event.getPreviousCityId());
+			}
+
+			//The category name is in the JSON of every city that lists it. Renames are rare, so the cities are looked up
+			//instead of keeping a category index of the held cities.
+			case CATEGORY_SAVED -> {
+				evict(event.getCityId());
+				cityJson.synchronous().invalidateAll(
+						readOnlyTransaction.execute(status -> cityDao.findCityIdsByCategoryId(event.getCategoryId())));
+			}
+		}
+	}
+
+	//Publishes the hit, miss and eviction counts, and the number of bytes held
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cityJson.synchronous(), "cityJson");
+
+		// @formatter:off
+		Gauge.builder("world.attractions.read.model.bytes", cityJson, cache ->
+				cache.synchronous().policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+				.description("Bytes of serialized city JSON held outside the heap")
+				.baseUnit("bytes")
+				.register(registry);
+		// @formatter:on
+	}
+
+	private void evict(Long cityId) {
+		if (Objects.nonNull(cityId)) {
+			cityJson.synchronous().invalidate(cityId);
+		}
+	}
+
+	//Copies the JSON into a read-only direct buffer and hashes it for the ETag
+	private CityJson hold(byte[] json) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+
+		buffer.put(json).flip();
+		return new CityJson(buffer.asReadOnlyBuffer(), "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+	}
+
+	//The JSON of a city and its strong ETag. The ETag changes whenever any byte of the JSON changes.
+	public record CityJson(ByteBuffer json, String etag) {
+
+		//Copies the JSON out of the direct buffer
+		public byte[] toBytes() {
+			ByteBuffer view = json.duplicate();
+			byte[] bytes = new byte[view.remaining()];
+
+			view.get(bytes);
+			return bytes;
+		}
+	}
+}
@@ -1,30 +1,90 @@
 package world.attractions.service;
 
-import java.util.LinkedList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import world.attractions.controller.model.AttractionBatch;
+import world.attractions.controller.model.AttractionBatch.BatchAttraction;
+import world.attractions.controller.model.CategoryPage;
+import world.attractions.controller.model.CityBatch;
 import world.attractions.controller.model.CityData;
 import world.attractions.controller.model.CityData.CityAttraction;
 import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.controller.model.CityPage;
+import world.attractions.controller.model.CityQuery;
+import world.attractions.controller.model.CitySummary;
 import world.attractions.dao.AttractionDao;
 import world.attractions.dao.CategoryDao;
 import world.attractions.dao.CityDao;
+import world.attractions.dao.PrimaryTransactionTemplate;
 import world.attractions.entity.Attraction;
 import world.attractions.entity.Category;
 import world.attractions.entity.City;
+import world.attractions.service.CityCache.CachedAttraction;
+import world.attractions.service.CityReadModel.CityJson;
 
 //This is the service class. It is used to manage the transactions that are performed in the DAO interfaces.
 
 //Tells Spring that this is a service class and creates the CityService bean 
 @Service
+//Times each public method. The timers are tagged with the method name.
+@Timed(value = "world.attractions.service", percentiles = { 0.5, 0.99 })
 public class CityService {
 
+	//The largest page that can be requested from retrieveCityPage()
+	public static final int MAX_PAGE_SIZE = 500;
+
+	//The largest number of IDs that can be requested at once from retrieveCitiesByIds() and retrieveAttractionsByIds()
+	public static final int MAX_BATCH_IDS = 100;
+
+	//The fields that can be requested from retrieveCities() and retrieveCitiesInCategory(), in the order of CityData
+	public static final List<String> CITY_DATA_FIELDS = Stream
+			.concat(CityDao.CITY_COLUMNS.stream(), Stream.of(CityDao.ATTRACTIONS, CityDao.CATEGORIES))
+			.toList();
+
+	//The fields of CitySummary, which retrieveCitiesInCategory() returns when no fields are requested
+	private static final List<String> CITY_SUMMARY_FIELDS = List.of("cityId", "cityName", "country", "language",
+			"currency", "safetyLevel");
+
+	//The number of times a write is tried when another transaction updated the same row first
+	private static final int WRITE_ATTEMPTS = 3;
+
+	//The largest number of city IDs that are put in the IN list of one fetch query
+	private static final int GRAPH_FETCH_CHUNK_SIZE = 500;
+
 	//Injects the CityDao bean into this field
 	@Autowired
 	private CityDao cityDao;
@@ -35,14 +95,46 @@ public class CityService {
 	@Autowired
 	private CategoryDao categoryDao;
 
+	@Autowired
+	private CityCache cityCache;
+
+	@Autowired
+	private CityReadModel cityReadModel;
+
+	@Autowired
+	private CityJsonWriter cityJsonWriter;
+
+	//Publishes a CatalogChangeEvent after each write so the cache and other derived data can be updated
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	//Used to clear the persistence context between chunks when streaming all of the cities
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	//Runs the loads of methods that are not @Transactional, so they only start a transaction when they need the database.
+	//The loads fill the caches, so they read from the primary, which is never behind a write that evicted them.
+	private final TransactionTemplate readOnlyTransaction;
+
+	public CityService(PlatformTransactionManager transactionManager) {
+		readOnlyTransaction = new PrimaryTransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
 	//Saves the created or updated city data in the city table by calling the save() method in the CityDao interface
+	//If another transaction updated the city first, the whole method is run again in a new transaction.
+	@Retryable(retryFor = OptimisticLockingFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+			backoff = @Backoff(delay = 10, multiplier = 2, random = true))
 	@Transactional(readOnly = false)
 	public CityData saveCity(CityData cityData) {
 		Long cityId = cityData.getCityId();
 		City city = findOrCreateCity(cityId);
 
 		setFieldsInCity(city, cityData);
-		return new CityData(cityDao.save(city));
+		CityData savedCity = new CityData(cityDao.save(city));
+
+		eventPublisher.publishEvent(CatalogChangeEvent.citySaved(savedCity.getCityId()));
+		return savedCity;
 	}
 
 	//Sets the values of the City fields to the values of the CityData fields
@@ -52,6 +144,10 @@ public class CityService {
 		city.setLanguage(cityData.getLanguage());
 		city.setCurrency(cityData.getCurrency());
 		city.setSafetyLevel(cityData.getSafetyLevel());
+
+		GeoGrid.checkCoordinates(cityData.getLatitude(), cityData.getLongitude());
+		city.setLatitude(cityData.getLatitude());
+		city.setLongitude(cityData.getLongitude());
 	}
 
 	//If the city ID is null, it creates a city. If the ID is not null, it calls
@@ -75,54 +171,252 @@ public class CityService {
 				.orElseThrow(() -> new NoSuchElementException("City with ID=" + cityId + " was not found."));
 	}
 
+	//Returns a reference to the city without loading it. It checks that the city exists first, so a missing city throws
+	//the same exception as findCityById().
+	private City findCityReference(Long cityId) {
+		checkCityExists(cityId);
+		return cityDao.getReferenceById(cityId);
+	}
+
+	private void checkCityExists(Long cityId) {
+		if (!cityDao.existsById(cityId)) {
+			throw new NoSuchElementException("City with ID=" + cityId + " was not found.");
+		}
+	}
+
 	//Retrieves all of the city data and converts each into CityData objects 
 	@Transactional(readOnly = true)
 	public List<CityData> retrieveAllCities() {
 		
+		List<City> cities = cityDao.findAll();
+
+		for (int from = 0; from < cities.size(); from += GRAPH_FETCH_CHUNK_SIZE) {
+			fetchCityGraphs(cities.subList(from, Math.min(from + GRAPH_FETCH_CHUNK_SIZE, cities.size())));
+		}
+
 		// @formatter:off
-		return cityDao.findAll()
+		return cities
 		.stream()
 		.map(CityData::new)
 		.toList();
 		// @formatter:on
 	}
 
-	//Retrieves a city's data by calling the findCityById() method in the CityDao interface
+	//Retrieves the fields of the cities that match the filters of the query, in the order of its sort keys. Without
+	//fields, every field of CityData is returned.
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> retrieveCities(CityQuery query) {
+		return cityDao.findCityFields(checkCityQuery(query, CITY_DATA_FIELDS), null, null, null);
+	}
+
+	//Loads the attractions and categories of the cities with one query per collection, instead of one query per city
+	//per collection when CityData loads them lazily.
+	private List<City> fetchCityGraphs(List<City> cities) {
+		if (!cities.isEmpty()) {
+			List<Long> cityIds = cities.stream().map(City::getCityId).toList();
+
+			cityDao.fetchAttractionsByCityIdIn(cityIds);
+			cityDao.fetchCategoriesByCityIdIn(cityIds);
+		}
+
+		return cities;
+	}
+
+	//Retrieves one page of cities. The page starts after the city with the ID in the page token, so every page is a seek on
+	//the primary key no matter how deep the client pages. A null page token starts at the first city.
+	@Transactional(readOnly = true)
+	public CityPage retrieveCityPage(Long pageToken, int pageSize) {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+		}
+
+		List<City> cities = fetchCityGraphs(findCitiesAfter(pageToken, pageSize));
+		Long nextPageToken = cities.size() < pageSize ? null : cities.get(cities.size() - 1).getCityId();
+
+		return new CityPage(cities.stream().map(CityData::new).toList(), nextPageToken);
+	}
+
+	//Writes every city as a JSON array in ID order, the same JSON as a list of CityData objects
+	@Transactional(readOnly = true)
+	public void writeAllCities(int chunkSize, OutputStream outputStream) throws IOException {
+		try (JsonGenerator generator = cityJsonWriter.createGenerator(outputStream)) {
+			generator.writeStartArray();
+			streamAllCities(chunkSize, city -> cityJsonWriter.writeCity(generator, city));
+			generator.writeEndArray();
+		}
+	}
+
+	//Returns every city as the same JSON array as writeAllCities()
+	@Transactional(readOnly = true)
+	public byte[] retrieveAllCitiesJson(int chunkSize) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		try {
+			writeAllCities(chunkSize, outputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return outputStream.toByteArray();
+	}
+
+	//Writes every city as one JSON object per line in ID order
+	@Transactional(readOnly = true)
+	public void exportAllCities(int chunkSize, OutputStream outputStream) throws IOException {
+		try (JsonGenerator generator = cityJsonWriter.createGenerator(outputStream)) {
+			streamAllCities(chunkSize, city -> {
+				cityJsonWriter.writeCity(generator, city);
+				generator.writeRaw('\n');
+			});
+		}
+	}
+
+	//Passes every city to the writer in ID order. The cities are read in chunks using keyset pagination and the
+	//persistence context is cleared after each chunk, so the memory used does not grow with the size of the city table.
+	private void streamAllCities(int chunkSize, CityWriter writer) throws IOException {
+		Long lastCityId = null;
+		List<City> chunk;
+
+		do {
+			chunk = fetchCityGraphs(findCitiesAfter(lastCityId, chunkSize));
+
+			for (City city : chunk) {
+				writer.write(city);
+				lastCityId = city.getCityId();
+			}
+
+			entityManager.clear();
+		} while (chunk.size() == chunkSize);
+	}
+
+	//Retrieves up to limit cities with an ID greater than the given city ID. A null city ID starts at the first city.
+	private List<City> findCitiesAfter(Long cityId, int limit) {
+		Long afterCityId = Objects.isNull(cityId) ? 0L : cityId;
+		return cityDao.findByCityIdGreaterThanOrderByCityIdAsc(afterCityId, PageRequest.of(0, limit));
+	}
+
+	//Retrieves a city's data from the cache. If the city is not cached, it calls the findCityById() method in the CityDao interface.
+	//The read goes to a replica unless the client or the cache needs the primary to see a recent write.
 	@Transactional(readOnly = true)
 	public CityData retrieveCityById(Long cityId) {
+		return cityCache.getCity(cityId, this::loadCityData);
+	}
+
+	//Retrieves a city's data as the JSON that GET /city/{cityId} returns. The method does not start a transaction, so a
+	//city that the read model holds is returned without taking a database connection. Otherwise the city is loaded in
+	//a read-only transaction.
+	public CityJson retrieveCityJsonById(Long cityId) {
+		return cityReadModel.getCityJson(cityId,
+				id -> readOnlyTransaction.execute(status -> cityJsonWriter.toBytes(loadCity(id))));
+	}
+
+	//Retrieves the ETag of a city's JSON if the read model holds it. The city is not loaded, so a request whose
+	//If-None-Match header matches it can be answered before any JSON is written or hashed.
+	public Optional<String> retrieveHeldCityEtag(Long cityId) {
+		return cityReadModel.findEtag(cityId);
+	}
+
+	//Retrieves the cities with the IDs in the order of the IDs. The cities that are not cached are loaded with one IN query
+	//per table, in one read-only transaction. IDs that do not exist are returned as missing IDs.
+	public CityBatch retrieveCitiesByIds(List<Long> cityIds) {
+		Set<Long> ids = checkBatchIds(cityIds);
+		Map<Long, CityData> cities = cityCache.getCities(ids,
+				missing -> readOnlyTransaction.execute(status -> loadCityDataByIds(missing)));
+
+		List<CityData> found = new ArrayList<>();
+		List<Long> missingIds = new ArrayList<>();
+
+		for (Long cityId : ids) {
+			if (cities.containsKey(cityId)) {
+				found.add(cities.get(cityId));
+			} else {
+				missingIds.add(cityId);
+			}
+		}
+
+		return new CityBatch(found, missingIds);
+	}
+
+	//Loads the cities with their attractions and categories and converts them into CityData objects, keyed by city ID
+	private Map<Long, CityData> loadCityDataByIds(Set<Long> cityIds) {
+		Map<Long, CityData> cities = new HashMap<>();
+
+		for (City city : fetchCityGraphs(cityDao.findAllById(cityIds))) {
+			cities.put(city.getCityId(), new CityData(city));
+		}
+
+		return cities;
+	}
+
+	//Removes the duplicate IDs and checks the number of IDs. The order of the first occurrence of each ID is kept.
+	private Set<Long> checkBatchIds(List<Long> ids) {
+		Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+		uniqueIds.remove(null);
+
+		if (uniqueIds.isEmpty() || uniqueIds.size() > MAX_BATCH_IDS) {
+			throw new IllegalArgumentException("Between 1 and " + MAX_BATCH_IDS + " IDs must be requested.");
+		}
+
+		return uniqueIds;
+	}
+
+	//Loads the city with its attractions and categories and converts it into a CityData object
+	private CityData loadCityData(Long cityId) {
+		return new CityData(loadCity(cityId));
+	}
+
+	//Loads the city with its attractions and categories
+	private City loadCity(Long cityId) {
 		City city = findCityById(cityId);
-		return new CityData(city);
+		fetchCityGraphs(List.of(city));
+		return city;
 	}
 
 	//Deletes a city by calling the delete() method in the CityDao interface
 	@Transactional(readOnly = false)
 	public void deleteCityById(Long cityId) {
 		City city = findCityById(cityId);
+		Set<Long> attractionIds = city.getAttractions().stream().map(Attraction::getAttractionId).collect(Collectors.toSet());
+
 		cityDao.delete(city);
+		eventPublisher.publishEvent(CatalogChangeEvent.cityDeleted(cityId, attractionIds));
 	}
 
 	//Saves the attraction data in the attraction table by calling the save() method in the AttractionDao interface. 
+	//The city is only checked and referenced, so its attractions are not loaded and the city row is not locked. Writers
+	//that add attractions to the same city do not wait for each other. If another transaction updated the attraction
+	//first, the whole method is run again in a new transaction.
+	@Retryable(retryFor = OptimisticLockingFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+			backoff = @Backoff(delay = 10, multiplier = 2, random = true))
 	@Transactional(readOnly = false)
 	public CityAttraction saveAttraction(Long cityId, CityAttraction cityAttraction) {
-		City city = findCityById(cityId);
+		City city = findCityReference(cityId);
 		
 		Attraction attraction = findOrCreateAttraction(cityAttraction.getAttractionId());
-		setAttractionFields(attraction, cityAttraction);
+		Long previousCityId = Objects.isNull(attraction.getCity()) ? null : attraction.getCity().getCityId();
+		setAttractionFields(attraction, cityAttraction, city);
 		
 		attraction.setCity(city);
-		city.getAttractions().add(attraction);
 	
 		Attraction dbAttraction = attractionDao.save(attraction);
+
+		eventPublisher.publishEvent(CatalogChangeEvent.attractionSaved(cityId, dbAttraction.getAttractionId(), previousCityId));
 		return new CityAttraction(dbAttraction);
 	}
 
-	//Sets the values of the Attraction fields to the values of the CityAttraction fields
-	private void setAttractionFields(Attraction attraction, CityAttraction cityAttraction) {
+	//Sets the values of the Attraction fields to the values of the CityAttraction fields. The currency of a price can
+	//depend on the country of the city.
+	private void setAttractionFields(Attraction attraction, CityAttraction cityAttraction, City city) {
 		attraction.setAttractionId(cityAttraction.getAttractionId());
 		attraction.setAttractionName(cityAttraction.getAttractionName());
 		attraction.setDescription(cityAttraction.getDescription());
 		attraction.setTicketPrice(cityAttraction.getTicketPrice());
 		attraction.setVisitorsYearly(cityAttraction.getVisitorsYearly());
+		AttractionNumbers.setNumericFields(attraction, cityAttraction, city::getCountry);
+
+		GeoGrid.checkCoordinates(cityAttraction.getLatitude(), cityAttraction.getLongitude());
+		attraction.setLatitude(cityAttraction.getLatitude());
+		attraction.setLongitude(cityAttraction.getLongitude());
 	}
 
 	//If the attraction ID is null, it creates an attraction. If the ID is not null, it calls
@@ -148,36 +442,118 @@ public class CityService {
 						"Attraction with ID=" + attractionId + " does not exist."));
 	}
 
-	//Retrieves an attraction's data from the attraction table. If the attraction is not in the city with the ID that was 
-	//passed to the method, it throws an exception.
+	//Retrieves an attraction's data from the cache, or from the attraction table on a replica in the same way as
+	//retrieveCityById(). If the attraction is not in the city with the ID that was passed to the method, it throws an
+	//exception.
 	@Transactional(readOnly = true)
 	public CityAttraction retrieveAttractionById(Long cityId, Long attractionId) {
-		Attraction attraction = findAttractionById(attractionId);
+		CachedAttraction cached = cityCache.getAttraction(attractionId, id -> {
+			Attraction attraction = findAttractionById(id);
+			return new CachedAttraction(attraction.getCity().getCityId(), new CityAttraction(attraction));
+		});
 		
-		if (attraction.getCity().getCityId() != cityId) {
+		if (!cached.cityId().equals(cityId)) {
 			throw new IllegalStateException("Attraction with ID=" + attractionId + " is not in the city with ID=" + cityId);
 		}
 		
-		return new CityAttraction(attraction);
+		return cached.attraction();
+	}
+
+	//Retrieves the attractions with the IDs in the order of the IDs, each with the ID of its city. The attractions that are
+	//not cached are loaded with one IN query in one read-only transaction. IDs that do not exist are returned as missing IDs.
+	public AttractionBatch retrieveAttractionsByIds(List<Long> attractionIds) {
+		Set<Long> ids = checkBatchIds(attractionIds);
+		Map<Long, CachedAttraction> attractions = cityCache.getAttractions(ids,
+				missing -> readOnlyTransaction.execute(status -> loadAttractionsByIds(missing)));
+
+		List<BatchAttraction> found = new ArrayList<>();
+		List<Long> missingIds = new ArrayList<>();
+
+		for (Long attractionId : ids) {
+			CachedAttraction cached = attractions.get(attractionId);
+
+			if (Objects.nonNull(cached)) {
+				found.add(new BatchAttraction(cached.cityId(), cached.attraction()));
+			} else {
+				missingIds.add(attractionId);
+			}
+		}
+
+		return new AttractionBatch(found, missingIds);
+	}
+
+	//Loads the attractions and the IDs of their cities, keyed by attraction ID. The cities are not loaded.
+	private Map<Long, CachedAttraction> loadAttractionsByIds(Set<Long> attractionIds) {
+		Map<Long, CachedAttraction> attractions = new HashMap<>();
+
+		for (Attraction attraction : attractionDao.findAllById(attractionIds)) {
+			attractions.put(attraction.getAttractionId(),
+					new CachedAttraction(attraction.getCity().getCityId(), new CityAttraction(attraction)));
+		}
+
+		return attractions;
+	}
+
+	//Retrieves up to limit attractions priced in the currency between the minimum and maximum amounts, cheapest first
+	@Transactional(readOnly = true)
+	public List<CityAttraction> retrieveAttractionsByPrice(String currency, BigDecimal minAmount, BigDecimal maxAmount,
+			int limit) {
+		checkLimit(limit);
+
+		// @formatter:off
+		return attractionDao.findByTicketPriceCurrencyAndTicketPriceAmountBetweenOrderByTicketPriceAmountAsc(
+				currency, minAmount, maxAmount, PageRequest.of(0, limit))
+		.stream()
+		.map(CityAttraction::new)
+		.toList();
+		// @formatter:on
+	}
+
+	//Retrieves up to limit attractions with the most yearly visitors first
+	@Transactional(readOnly = true)
+	public List<CityAttraction> retrieveMostVisitedAttractions(int limit) {
+		checkLimit(limit);
+
+		// @formatter:off
+		return attractionDao.findByVisitorsYearlyCountGreaterThanEqualOrderByVisitorsYearlyCountDesc(0L, PageRequest.of(0, limit))
+		.stream()
+		.map(CityAttraction::new)
+		.toList();
+		// @formatter:on
+	}
+
+	private void checkLimit(int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+		}
 	}
 
 	//Deletes an attraction from the database by calling the delete() method in the AttractionDao class.
 	@Transactional(readOnly = false)
 	public void deleteAttractionById(Long attractionId) {
 		Attraction attraction = findAttractionById(attractionId);
+		Long cityId = attraction.getCity().getCityId();
+
 		attractionDao.delete(attraction);
+		eventPublisher.publishEvent(CatalogChangeEvent.attractionDeleted(cityId, attractionId));
 	}
 
 	//Saves the category data in the database by calling the save() method in the CategoryDao interface. 
+	//The link between the city and the category is inserted directly into the city_category table, so neither side of the
+	//relationship is loaded. If another transaction renamed the category first, the whole method is run again in a new
+	//transaction.
+	@Retryable(retryFor = OptimisticLockingFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+			backoff = @Backoff(delay = 10, multiplier = 2, random = true))
+	@Transactional(readOnly = false)
 	public CityCategory saveCategory(Long cityId, CityCategory cityCategory) {
-		City city = findCityById(cityId);
+		checkCityExists(cityId);
 		Category category = findOrCreateCategory(cityId, cityCategory.getCategoryId());
 		copyCategoryFields(category, cityCategory);
-		category.getCities().add(city);
-		city.getCategories().add(category);
 		
 		Category dbCategory = categoryDao.save(category);
-		
+		cityDao.addCategory(cityId, dbCategory.getCategoryId());
+
+		eventPublisher.publishEvent(CatalogChangeEvent.categorySaved(cityId, dbCategory.getCategoryId()));
 		return new CityCategory(dbCategory);
 	}
 
@@ -208,22 +584,99 @@ public class CityService {
 						"Category with ID=" + categoryId + " does not exist."));
 	}
 	
-	//Retrieves all of the cities in a category. It calls the findCategoryById() method to retrieve the category data.
-	//It gets all of the city objects from the category object, converts them into CityData objects, and removes the 
-	//attractions and categories to only return the List with the cities' data.
-	public List<CityData> retrieveAllCitiesInCategory(Long categoryId) {
-		Category category = findCategoryById(categoryId);
-		List<CityData> categoryCities = new LinkedList<>(); 
-		
-		for (City city : category.getCities()) {
-			CityData cityData = new CityData(city);
-			
-			cityData.getAttractions().clear();
-			cityData.getCategories().clear();
-			
-			categoryCities.add(cityData);
+	//Retrieves the fields of the cities in a category that match the filters of the query. Without fields, the fields of
+	//CitySummary are returned. A page token can only be passed with the default sort by city ID, because the next page
+	//starts after the city ID.
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> retrieveCitiesInCategory(Long categoryId, CityQuery query, Long pageToken,
+			Integer pageSize) {
+		CityQuery checkedQuery = checkCityQuery(query, CITY_SUMMARY_FIELDS);
+
+		if (Objects.nonNull(pageSize) && (pageSize < 1 || pageSize > MAX_PAGE_SIZE)) {
+			throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
 		}
-		
+
+		if (Objects.nonNull(pageToken) && !query.getSort().isEmpty() && !query.getSort().equals(List.of("cityId"))) {
+			throw new IllegalArgumentException("A page token can only be used when the cities are sorted by cityId.");
+		}
+
+		List<Map<String, Object>> categoryCities = cityDao.findCityFields(checkedQuery, categoryId, pageToken, pageSize);
+
+		if (categoryCities.isEmpty() && !categoryDao.existsById(categoryId)) {
+			throw new NoSuchElementException("Category with ID=" + categoryId + " does not exist.");
+		}
+
 		return categoryCities;
 	}
+
+	//Checks the sort keys and fields of the query and returns a copy without repeated fields. If no fields were
+	//requested, the copy has the default fields. The query that was passed is not changed, because the controller uses
+	//it as part of a map key.
+	private CityQuery checkCityQuery(CityQuery query, List<String> defaultFields) {
+		Set<String> sortColumns = new HashSet<>();
+
+		for (String key : query.getSort()) {
+			String column = key.startsWith("-") ? key.substring(1) : key;
+
+			if (!CityDao.CITY_COLUMNS.contains(column)) {
+				throw new IllegalArgumentException("Cities cannot be sorted by " + column + ". The sort keys are "
+						+ CityDao.CITY_COLUMNS + ", with - in front for descending order.");
+			}
+
+			if (!sortColumns.add(column)) {
+				throw new IllegalArgumentException("Cities are sorted by " + column + " more than once.");
+			}
+		}
+
+		for (String field : query.getFields()) {
+			if (!CITY_DATA_FIELDS.contains(field)) {
+				throw new IllegalArgumentException(
+						"Field " + field + " does not exist. The fields are " + CITY_DATA_FIELDS + ".");
+			}
+		}
+
+		return query.copyWithFields(
+				query.getFields().isEmpty() ? defaultFields : query.getFields().stream().distinct().toList());
+	}
+
+	//Retrieves the cities in a category without their attractions and categories. The cities come from a projection query
+	//on the city and city_category tables.
+	@Transactional(readOnly = true)
+	public List<CitySummary> retrieveAllCitiesInCategory(Long categoryId) {
+		return findCategoryCities(categoryId, 0L, Pageable.unpaged());
+	}
+
+	//Retrieves one page of the cities in a category in the same way as retrieveAllCitiesInCategory(). The page has the
+	//cities after the city ID in the page token, and the ID of its last city is the token of the next page. A page with
+	//fewer cities than the page size is the last one.
+	@Transactional(readOnly = true)
+	public CategoryPage retrieveCategoryPage(Long categoryId, Long pageToken, int pageSize) {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+		}
+
+		Long afterCityId = Objects.isNull(pageToken) ? 0L : pageToken;
+		List<CitySummary> cities = findCategoryCities(categoryId, afterCityId, PageRequest.of(0, pageSize));
+		Long nextPageToken = cities.size() < pageSize ? null : cities.get(cities.size() - 1).getCityId();
+
+		return new CategoryPage(cities, nextPageToken);
+	}
+
+	//Reads the cities in a category after the city ID. If the category does not have any, it checks that the category
+	//exists.
+	private List<CitySummary> findCategoryCities(Long categoryId, Long afterCityId, Pageable pageable) {
+		List<CitySummary> categoryCities = cityDao.findSummariesByCategoryId(categoryId, afterCityId, pageable);
+
+		if (categoryCities.isEmpty() && !categoryDao.existsById(categoryId)) {
+			throw new NoSuchElementException("Category with ID=" + categoryId + " does not exist.");
+		}
+
+		return categoryCities;
+	}
+
+	//Writes one city. It is used instead of a Consumer so the JsonGenerator can throw its IOException.
+	@FunctionalInterface
+	private interface CityWriter {
+		void write(City city) throws IOException;
+	}
 }
@@ -0,0 +1,299 @@
+package world.attractions.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import world.attractions.controller.model.NearbyAttraction;
+
+//An in-memory spatial index of attraction locations. The globe is divided into cells of cellDegrees latitude by
+//cellDegrees longitude, and each cell keeps the points inside it in arrays. A search only reads the cells that overlap
+//the bounding box of the search circle.
+//Each point is kept as a unit vector, so a point is inside the circle when its dot product with the center is at least
+//the cosine of the radius angle. The great-circle distance is only calculated for the points that are returned.
+//Searches do not lock. The arrays of a cell are never changed where a search can see them: a point is appended past
+//the end that the published cell reads to, and a removal copies the arrays.
+
+public class GeoGrid {
+
+	//The mean radius of the earth in kilometers
+	public static final double EARTH_RADIUS_KM = 6371.0088;
+
+	//The largest distance between two points on the earth
+	private static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+	private final int latitudeCells;
+	private final int longitudeCells;
+
+	//The cell sizes are rounded so that a whole number of cells covers the globe
+	private final double latitudeCellDegrees;
+	private final double longitudeCellDegrees;
+
+	//The non-empty cells by row * longitudeCells + column
+	private final Map<Integer, Cell> cells = new ConcurrentHashMap<>();
+
+	//The cell of each point. It is only used by the writers, which hold the lock.
+	private final Map<Long, Integer> cellOfPoint = new HashMap<>();
+
+	public GeoGrid(double cellDegrees) {
+		if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+			throw new IllegalArgumentException("Cell size must be more than 0 and at most 90 degrees.");
+		}
+
+		latitudeCells = (int) Math.round(180 / cellDegrees);
+		longitudeCells = (int) Math.round(360 / cellDegrees);
+		latitudeCellDegrees = 180.0 / latitudeCells;
+		longitudeCellDegrees = 360.0 / longitudeCells;
+	}
+
+	//Checks that the latitude and longitude are both null or are both set to valid WGS 84 degrees
+	public static void checkCoordinates(Double latitude, Double longitude) {
+		if (Objects.isNull(latitude) != Objects.isNull(longitude)) {
+			throw new IllegalArgumentException("Latitude and longitude must both be set or both be empty.");
+		}
+
+		if (Objects.nonNull(latitude) && !(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+			throw new IllegalArgumentException("Latitude must be between -90 and 90 and longitude between -180 and 180.");
+		}
+	}
+
+	//Adds the point, or moves it if it is already in the grid
+	public synchronized void put(long id, long cityId, double latitude, double longitude) {
+		checkCoordinates(latitude, longitude);
+		remove(id);
+
+		int key = cellKey(row(latitude), column(longitude));
+		double[] vector = toVector(latitude, longitude);
+
+		cells.put(key, Objects.requireNonNullElse(cells.get(key), Cell.EMPTY).append(id, cityId, vector));
+		cellOfPoint.put(id, key);
+	}
+
+	//Removes the point if it is in the grid
+	public synchronized void remove(long id) {
+		Integer key = cellOfPoint.remove(id);
+
+		if (Objects.nonNull(key)) {
+			Cell cell = cells.get(key).remove(id);
+
+			if (cell.size == 0) {
+				cells.remove(key);
+			} else {
+				cells.put(key, cell);
+			}
+		}
+	}
+
+	//Returns the number of points in the grid
+	public synchronized int size() {
+		return cellOfPoint.size();
+	}
+
+	//Returns up to limit points within the radius of the location, nearest first
+	public List<NearbyAttraction> findWithinRadius(double latitude, double longitude, double radiusKm, int limit) {
+		checkCoordinates(latitude, longitude);
+
+		double[] center = toVector(latitude, longitude);
+		double angle = Math.min(radiusKm, MAX_DISTANCE_KM) / EARTH_RADIUS_KM;
+		double minDot = Math.cos(angle);
+		PriorityQueue<Hit> hits = new PriorityQueue<>(Comparator.comparingDouble(Hit::dot));
+
+		visitCells(latitude, longitude, angle, cell -> {
+			for (int index = 0; index < cell.size; index++) {
+				double dot = center[0] * cell.x[index] + center[1] * cell.y[index] + center[2] * cell.z[index];
+
+				if (dot >= minDot && (hits.size() < limit || dot > hits.peek().dot())) {
+					hits.add(new Hit(cell, index, dot));
+
+					if (hits.size() > limit) {
+						hits.poll();
+					}
+				}
+			}
+		});
+
+		List<NearbyAttraction> nearby = new ArrayList<>(hits.size());
+
+		while (!hits.isEmpty()) {
+			nearby.add(hits.poll().toNearbyAttraction(center));
+		}
+
+		Collections.reverse(nearby);
+		return nearby;
+	}
+
+	//Returns the limit points nearest to the location, nearest first. The radius searched starts at the size of a cell
+	//and grows until it holds enough points. Every point outside the radius is further away than the points inside it,
+	//so the points found are the nearest.
+	public List<NearbyAttraction> findNearest(double latitude, double longitude, int limit) {
+		double radiusKm = Math.toRadians(latitudeCellDegrees) * EARTH_RADIUS_KM;
+
+		while (true) {
+			List<NearbyAttraction> nearest = findWithinRadius(latitude, longitude, radiusKm, limit);
+
+			if (nearest.size() == limit || radiusKm >= MAX_DISTANCE_KM) {
+				return nearest;
+			}
+
+			radiusKm *= 4;
+		}
+	}
+
+	//Passes each non-empty cell that overlaps the bounding box of the circle to the visitor. The longitude range is
+	//widened for the latitude of the center, and every longitude is searched if the circle covers a pole. If the box
+	//has more cells than the grid holds, the grid's cells are filtered instead of looking up each cell of the box.
+	private void visitCells(double latitude, double longitude, double angle, Consumer<Cell> visitor) {
+		double angleDegrees = Math.toDegrees(angle);
+		double minLatitude = latitude - angleDegrees;
+		double maxLatitude = latitude + angleDegrees;
+		int firstRow = row(Math.max(minLatitude, -90));
+		int lastRow = row(Math.min(maxLatitude, 90));
+		int firstColumn = 0;
+		int columnCount = longitudeCells;
+
+		if (minLatitude > -90 && maxLatitude < 90) {
+			double longitudeDegrees = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+
+			if (longitudeDegrees < 180) {
+				firstColumn = (int) Math.floor((longitude - longitudeDegrees + 180) / longitudeCellDegrees);
+				columnCount = Math.min(longitudeCells,
+						(int) Math.floor((longitude + longitudeDegrees + 180) / longitudeCellDegrees) - firstColumn + 1);
+			}
+		}
+
+		if ((long) (lastRow - firstRow + 1) * columnCount > cells.size()) {
+			int boxFirstColumn = Math.floorMod(firstColumn, longitudeCells);
+			int boxColumnCount = columnCount;
+
+			cells.forEach((key, cell) -> {
+				int row = key / longitudeCells;
+				int offset = Math.floorMod(key % longitudeCells - boxFirstColumn, longitudeCells);
+
+				if (row >= firstRow && row <= lastRow && offset < boxColumnCount) {
+					visitor.accept(cell);
+				}
+			});
+
+			return;
+		}
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = 0; column < columnCount; column++) {
+				Cell cell = cells.get(cellKey(row, Math.floorMod(firstColumn + column, longitudeCells)));
+
+				if (Objects.nonNull(cell)) {
+					visitor.accept(cell);
+				}
+			}
+		}
+	}
+
+	private int row(double latitude) {
+		return Math.min(latitudeCells - 1, (int) Math.floor((latitude + 90) / latitudeCellDegrees));
+	}
+
+	private int column(double longitude) {
+		return Math.floorMod((int) Math.floor((longitude + 180) / longitudeCellDegrees), longitudeCells);
+	}
+
+	private int cellKey(int row, int column) {
+		return row * longitudeCells + column;
+	}
+
+	private static double[] toVector(double latitude, double longitude) {
+		double latitudeRadians = Math.toRadians(latitude);
+		double longitudeRadians = Math.toRadians(longitude);
+		double cosLatitude = Math.cos(latitudeRadians);
+
+		return new double[] { cosLatitude * Math.cos(longitudeRadians), cosLatitude * Math.sin(longitudeRadians),
+				Math.sin(latitudeRadians) };
+	}
+
+	//The points of one cell. The first size entries of the arrays are the points, and the arrays may be longer so that
+	//points can be appended without copying.
+	private static class Cell {
+		private static final Cell EMPTY = new Cell(new long[0], new long[0], new double[0], new double[0], new double[0], 0);
+
+		private final long[] ids;
+		private final long[] cityIds;
+		private final double[] x;
+		private final double[] y;
+		private final double[] z;
+		private final int size;
+
+		private Cell(long[] ids, long[] cityIds, double[] x, double[] y, double[] z, int size) {
+			this.ids = ids;
+			this.cityIds = cityIds;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.size = size;
+		}
+
+		//Returns a cell with the point added. The arrays are shared with this cell while they have room.
+		private Cell append(long id, long cityId, double[] vector) {
+			Cell cell = this;
+
+			if (size == ids.length) {
+				int capacity = Math.max(4, size * 2);
+				cell = new Cell(Arrays.copyOf(ids, capacity), Arrays.copyOf(cityIds, capacity), Arrays.copyOf(x, capacity),
+						Arrays.copyOf(y, capacity), Arrays.copyOf(z, capacity), size);
+			}
+
+			cell.ids[size] = id;
+			cell.cityIds[size] = cityId;
+			cell.x[size] = vector[0];
+			cell.y[size] = vector[1];
+			cell.z[size] = vector[2];
+
+			return new Cell(cell.ids, cell.cityIds, cell.x, cell.y, cell.z, size + 1);
+		}
+
+		//Returns a cell without the point, in new arrays
+		private Cell remove(long id) {
+			Cell cell = new Cell(new long[size], new long[size], new double[size], new double[size], new double[size], 0);
+			int count = 0;
+
+			for (int index = 0; index < size; index++) {
+				if (ids[index] != id) {
+					cell.ids[count] = ids[index];
+					cell.cityIds[count] = cityIds[index];
+					cell.x[count] = x[index];
+					cell.y[count] = y[index];
+					cell.z[count] = z[index];
+					count++;
+				}
+			}
+
+			return new Cell(cell.ids, cell.cityIds, cell.x, cell.y, cell.z, count);
+		}
+	}
+
+	//A point inside the circle and the dot product of its vector with the center
+	private record Hit(Cell cell, int index, double dot) {
+
+		//The distance is calculated from the chord between the vectors, which stays accurate for short distances where
+		//the arccosine of the dot product does not
+		private NearbyAttraction toNearbyAttraction(double[] center) {
+			double latitude = Math.toDegrees(Math.asin(cell.z[index]));
+			double longitude = Math.toDegrees(Math.atan2(cell.y[index], cell.x[index]));
+			double chord = Math.sqrt(square(cell.x[index] - center[0]) + square(cell.y[index] - center[1])
+					+ square(cell.z[index] - center[2]));
+			double distanceKm = EARTH_RADIUS_KM * 2 * Math.asin(Math.min(1, chord / 2));
+
+			return new NearbyAttraction(cell.ids[index], cell.cityIds[index], latitude, longitude, distanceKm);
+		}
+
+		private static double square(double value) {
+			return value * value;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package world.attractions.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import world.attractions.controller.model.CatalogChangeData;
+
+//Publishes each relayed change as a CatalogChangeData application event, so components in this application can react
+//to committed changes with an @EventListener method. Unlike CatalogChangeEvent, the event is only published after the
+//change has committed, and it is published once by the relaying instance instead of by the instance that wrote it.
+
+@Component
+@ConditionalOnProperty(name = "world-attractions.outbox.sinks.in-process", havingValue = "true", matchIfMissing = true)
+public class InProcessChangeSink implements CatalogChangeSink {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Override
+	public void publish(List<CatalogChangeData> changes) {
+		changes.forEach(publisher::publishEvent);
+	}
+}
@@ -0,0 +1,54 @@
+package world.attractions.service;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.CatalogChangeData;
+
+//Writes each relayed change as one line of JSON, for trying out consumers and for checking the order of the changes.
+//The lines are appended to world-attractions.outbox.file if it is set, and logged by the world.attractions.outbox logger
+//otherwise. It is off unless world-attractions.outbox.sinks.log is true.
+
+@Component
+@Slf4j(topic = "world.attractions.outbox")
+@ConditionalOnProperty(name = "world-attractions.outbox.sinks.log", havingValue = "true")
+public class LogChangeSink implements CatalogChangeSink {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${world-attractions.outbox.file:}")
+	private String file;
+
+	@Override
+	public void publish(List<CatalogChangeData> changes) throws Exception {
+		if (!StringUtils.hasText(file)) {
+			for (CatalogChangeData change : changes) {
+				log.info("{}", objectMapper.writeValueAsString(change));
+			}
+
+			return;
+		}
+
+		try (BufferedWriter writer = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (CatalogChangeData change : changes) {
+				writer.write(objectMapper.writeValueAsString(change));
+				writer.newLine();
+			}
+		}
+	}
+}
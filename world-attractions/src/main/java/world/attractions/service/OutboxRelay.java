@@ -0,0 +1,146 @@
+package world.attractions.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import world.attractions.controller.model.CatalogChangeData;
+import world.attractions.dao.CatalogChangeDao;
+import world.attractions.dao.OutboxCursorDao;
+import world.attractions.entity.OutboxCursor;
+
+//Numbers the committed changes in the catalog_change outbox and publishes them to every CatalogChangeSink bean, in
+//sequence order and in batches of world-attractions.outbox.batch-size.
+//The writers insert their changes without taking a shared lock, so a change with a smaller change_id can commit after
+//one with a larger change_id. The relay gives each change a sequence number only after it has committed, while holding
+//the lock on the outbox_cursor row named sequence, so the feed has no gaps and never gains a change behind a cursor
+//that a consumer has already read.
+//The sequence number of the last change published is kept in the outbox_cursor row named by
+//world-attractions.outbox.relay-name. Each batch is published while the transaction holds that cursor row lock, so
+//only one instance of the application relays at a time. If a sink fails, the cursor is not moved and the batch is
+//published again on the next run.
+
+@Component
+@Slf4j
+public class OutboxRelay {
+
+	//The name of the outbox_cursor row that holds the last sequence number that was assigned
+	static final String SEQUENCE_CURSOR = "sequence";
+
+	private static final String SEQUENCE_CHANGE_SQL = "update catalog_change set sequence_number = ? where change_id = ?";
+
+	private final TransactionTemplate transaction;
+
+	@Autowired
+	private CatalogChangeDao catalogChangeDao;
+
+	@Autowired
+	private OutboxCursorDao outboxCursorDao;
+
+	//Reads the new catalog version once the changes are numbered
+	@Autowired
+	private CatalogVersionTracker catalogVersionTracker;
+
+	//Numbers a batch of changes with one JDBC batch update
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	//Every sink can be turned off, and then the relay only moves the cursor
+	@Autowired(required = false)
+	private List<CatalogChangeSink> sinks = List.of();
+
+	@Value("${world-attractions.outbox.relay-name:default}")
+	private String relayName;
+
+	@Value("${world-attractions.outbox.batch-size:500}")
+	private int batchSize;
+
+	public OutboxRelay(PlatformTransactionManager transactionManager) {
+		transaction = new TransactionTemplate(transactionManager);
+	}
+
+	//Numbers the committed changes and reads the new catalog version, then publishes batches until the outbox has no
+	//more changes after the cursor
+	@Scheduled(fixedDelayString = "${world-attractions.outbox.relay-interval:PT1S}")
+	public void relay() {
+		try {
+			while (Boolean.TRUE.equals(transaction.execute(status -> sequenceBatch()))) {
+				//A full batch was numbered, so there may be more changes
+			}
+
+			catalogVersionTracker.refresh();
+
+			while (Boolean.TRUE.equals(transaction.execute(status -> relayBatch()))) {
+				//A full batch was published, so there may be more changes
+			}
+		} catch (Exception e) {
+			log.warn("Relaying catalog changes failed and will be retried", e);
+		}
+	}
+
+	//Numbers the next batch of committed changes in change ID order, after the last sequence number assigned. The
+	//numbers commit together, so a reader sees all of them or none. Returns true if the batch was full.
+	private boolean sequenceBatch() {
+		outboxCursorDao.createIfMissing(SEQUENCE_CURSOR);
+
+		OutboxCursor cursor = outboxCursorDao.findAndLock(SEQUENCE_CURSOR).orElseThrow();
+		List<Long> changeIds = catalogChangeDao.findUnsequencedChangeIds(PageRequest.ofSize(batchSize));
+
+		if (changeIds.isEmpty()) {
+			return false;
+		}
+
+		long sequenceNumber = cursor.getLastChangeId();
+		List<Object[]> rows = new ArrayList<>(changeIds.size());
+
+		for (Long changeId : changeIds) {
+			rows.add(new Object[] {++sequenceNumber, changeId});
+		}
+
+		jdbcTemplate.batchUpdate(SEQUENCE_CHANGE_SQL, rows);
+		cursor.setLastChangeId(sequenceNumber);
+		return changeIds.size() == batchSize;
+	}
+
+	//Publishes the next batch and moves the cursor past it. Returns true if the batch was full.
+	private boolean relayBatch() {
+		outboxCursorDao.createIfMissing(relayName);
+
+		OutboxCursor cursor = outboxCursorDao.findAndLock(relayName).orElseThrow();
+
+		// @formatter:off
+		List<CatalogChangeData> changes = catalogChangeDao
+				.findBySequenceNumberGreaterThanOrderBySequenceNumberAsc(cursor.getLastChangeId(),
+						PageRequest.ofSize(batchSize))
+				.stream()
+				.map(CatalogChangeData::new)
+				.toList();
+		// @formatter:on
+
+		if (changes.isEmpty()) {
+			return false;
+		}
+
+		for (CatalogChangeSink sink : sinks) {
+			try {
+				sink.publish(changes);
+			} catch (Exception e) {
+				throw new IllegalStateException("Sink " + sink.getClass().getSimpleName() + " failed to publish changes "
+						+ changes.get(0).getSequenceNumber() + " to " + changes.get(changes.size() - 1).getSequenceNumber()
+						+ ".", e);
+			}
+		}
+
+		cursor.setLastChangeId(changes.get(changes.size() - 1).getSequenceNumber());
+		return changes.size() == batchSize;
+	}
+}
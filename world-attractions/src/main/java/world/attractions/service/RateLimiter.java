@@ -0,0 +1,63 @@
+package world.attractions.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+//A token bucket for each client that holds up to burst requests and is refilled with limit requests every period.
+//The bucket is kept as the one time from which it would be full again (the generic cell rate algorithm), so taking a
+//token is a compare-and-set of one AtomicLong and the clients never wait on a lock.
+//A client's time is dropped once its bucket would be full again, which is the same as a client that was never seen,
+//so only the clients that sent requests recently are held. If more than maxClients clients are held, the least
+//recently seen are dropped and start again with full buckets.
+
+public class RateLimiter {
+
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final Cache<String, AtomicLong> fullAt;
+
+	public RateLimiter(int limit, Duration period, int burst, long maxClients) {
+		if (limit < 1 || burst < 1 || period.isNegative() || period.isZero()) {
+			throw new IllegalArgumentException("The limit, period and burst of a rate limit must be positive.");
+		}
+
+		intervalNanos = Math.max(1, period.toNanos() / limit);
+		burstNanos = intervalNanos * burst;
+
+		// @formatter:off
+		fullAt = Caffeine.newBuilder()
+				.maximumSize(maxClients)
+				.expireAfterAccess(Duration.ofNanos(burstNanos))
+				.build();
+		// @formatter:on
+	}
+
+	//Takes a token from the client's bucket. Returns 0 if it had one, otherwise the nanoseconds until it has one. A
+	//request that is refused does not take a token.
+	public long tryAcquire(String client) {
+		AtomicLong state = fullAt.get(client, key -> new AtomicLong(System.nanoTime()));
+
+		while (true) {
+			long now = System.nanoTime();
+			long current = state.get();
+			long next = (current - now < 0 ? now : current) + intervalNanos;
+			long excess = next - now - burstNanos;
+
+			if (excess > 0) {
+				return excess;
+			}
+
+			if (state.compareAndSet(current, next)) {
+				return 0;
+			}
+		}
+	}
+
+	//Returns the number of clients whose buckets are held
+	public long clientCount() {
+		return fullAt.estimatedSize();
+	}
+}
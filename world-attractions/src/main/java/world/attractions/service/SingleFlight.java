@@ -0,0 +1,57 @@
+package world.attractions.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//Lets concurrent identical reads share one computation. The first caller of a key runs the loader on its own thread and
+//the callers that arrive with the same key while it runs wait for its result instead of running the loader again.
+//The key is removed as soon as the result is ready, so nothing is cached: a caller that arrives later runs the loader
+//again. Keys that include the catalog ETag are not shared once the relay has numbered a write.
+//A loader that throws passes its exception or error to every caller that waited for it, in the same way as
+//CityCache.get(). The keys must not change while they are in the map, so callers pass copies that nothing else changes.
+
+public class SingleFlight<K, V> {
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	//Returns the result of the loader for the key, run by this thread or by the thread that started it first
+	public V execute(K key, Supplier<V> loader) {
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> future = inFlight.putIfAbsent(key, created);
+
+		if (future == null) {
+			future = created;
+
+			try {
+				created.complete(loader.get());
+			} catch (Throwable e) {
+				//An Error such as OutOfMemoryError must reach the waiters too, or they would wait forever
+				created.completeExceptionally(e);
+			} finally {
+				inFlight.remove(key, created);
+			}
+		}
+
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+
+			throw e;
+		}
+	}
+
+	//Returns the number of keys whose loader is running
+	public int size() {
+		return inFlight.size();
+	}
+}
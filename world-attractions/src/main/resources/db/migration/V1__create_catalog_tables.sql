@@ -0,0 +1,37 @@
+-- Creates the catalog tables. The tables were created by Hibernate (ddl-auto: update) before the migrations existed,
+-- so every statement is skipped when the table is already there.
+
+create table if not exists city (
+	city_id bigint not null auto_increment,
+	city_name varchar(255),
+	country varchar(255),
+	language varchar(255),
+	currency varchar(255),
+	safety_level varchar(255),
+	primary key (city_id)
+) engine = InnoDB;
+
+create table if not exists category (
+	category_id bigint not null auto_increment,
+	category_name varchar(255),
+	primary key (category_id)
+) engine = InnoDB;
+
+create table if not exists attraction (
+	attraction_id bigint not null auto_increment,
+	attraction_name varchar(255),
+	description varchar(255),
+	ticket_price varchar(255),
+	visitors_yearly varchar(255),
+	city_id bigint not null,
+	primary key (attraction_id),
+	constraint fk_attraction_city foreign key (city_id) references city (city_id)
+) engine = InnoDB;
+
+create table if not exists city_category (
+	city_id bigint not null,
+	category_id bigint not null,
+	primary key (city_id, category_id),
+	constraint fk_city_category_city foreign key (city_id) references city (city_id),
+	constraint fk_city_category_category foreign key (category_id) references category (category_id)
+) engine = InnoDB;
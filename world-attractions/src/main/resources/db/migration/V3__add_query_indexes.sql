@@ -0,0 +1,12 @@
+-- Creates the indexes for the service's queries.
+-- idx_city_category_category: the cities of a category are read through city_category by category_id. The primary key
+-- starts with city_id, so without this index the reverse lookup scans the whole table. The index holds both columns,
+-- so the join is answered from the index alone.
+-- idx_city_country and idx_city_city_name: filtering and sorting cities by country and name. InnoDB appends the
+-- primary key to each secondary index, so keyset pages on city_id within a country are also read from the index.
+-- idx_attraction_attraction_name: looking up and sorting attractions by name.
+
+create index idx_city_category_category on city_category (category_id, city_id);
+create index idx_city_country on city (country);
+create index idx_city_city_name on city (city_name);
+create index idx_attraction_attraction_name on attraction (attraction_name);
@@ -0,0 +1,14 @@
+-- Adds the optimistic locking version of each catalog row, and the catalog version that is the ETag of the list
+-- endpoints. The catalog version is incremented by every transaction that changes the catalog.
+
+alter table city add column version bigint not null default 0;
+alter table attraction add column version bigint not null default 0;
+alter table category add column version bigint not null default 0;
+
+create table if not exists catalog_version (
+	catalog_version_id int not null,
+	version bigint not null,
+	primary key (catalog_version_id)
+);
+
+insert ignore into catalog_version (catalog_version_id, version) values (1, 0);
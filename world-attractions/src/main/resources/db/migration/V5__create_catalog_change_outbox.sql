@@ -0,0 +1,23 @@
+-- Creates the outbox of catalog changes. Each transaction that changes the catalog inserts its changes here, and the
+-- relay publishes them in change_id order. outbox_cursor holds the last change_id that each relay published.
+-- idx_catalog_change_created_at: the cleanup job deletes the changes older than the retention time.
+
+create table catalog_change (
+	change_id bigint not null auto_increment,
+	change_type varchar(32) not null,
+	city_id bigint,
+	attraction_id bigint,
+	category_id bigint,
+	previous_city_id bigint,
+	attraction_ids text,
+	created_at datetime(6) not null,
+	primary key (change_id)
+);
+
+create index idx_catalog_change_created_at on catalog_change (created_at);
+
+create table outbox_cursor (
+	cursor_name varchar(64) not null,
+	last_change_id bigint not null,
+	primary key (cursor_name)
+);
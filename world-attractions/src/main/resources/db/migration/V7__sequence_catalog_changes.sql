@@ -0,0 +1,18 @@
+-- Orders the outbox by a sequence number that the relay assigns after the changes commit, instead of by change_id.
+-- change_id is handed out when a row is inserted, so a transaction that inserts first can commit last, and a feed read
+-- in change_id order could skip it. Rows are only given a sequence number once they are visible, so the sequence has
+-- no gaps. The outbox_cursor rows now hold sequence numbers, and the row named sequence holds the last one assigned.
+-- The existing changes keep their change_id as their sequence number, so the cursors that consumers hold stay valid.
+-- idx_catalog_change_sequence_number: the relay finds the rows without a number, and the feed reads the rows after a
+-- cursor.
+
+alter table catalog_change add column sequence_number bigint;
+
+update catalog_change set sequence_number = change_id;
+
+create unique index idx_catalog_change_sequence_number on catalog_change (sequence_number);
+
+insert ignore into outbox_cursor (cursor_name, last_change_id)
+select 'sequence', greatest(coalesce(max(change_id), 0),
+		coalesce((select max(last_change_id) from outbox_cursor where cursor_name = 'retention'), 0))
+from catalog_change;
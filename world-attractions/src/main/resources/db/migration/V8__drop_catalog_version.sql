@@ -0,0 +1,5 @@
+-- Drops the catalog_version table. Every write used to increment its only row, which made the writes wait for each
+-- other. The ETags are now made from the last sequence number in the outbox_cursor row named sequence, which the relay
+-- assigns after the changes commit.
+
+drop table if exists catalog_version;
@@ -0,0 +1,14 @@
+-- Creates the table where the backfill jobs keep their progress, so they no longer keep it in outbox_cursor next to the
+-- sequence numbers of the outbox. Each job has a row with the last attraction ID that it checked. The progress of the
+-- attraction-numbers job is moved over from its outbox_cursor row.
+
+create table backfill_progress (
+	backfill_name varchar(64) not null,
+	last_attraction_id bigint not null,
+	primary key (backfill_name)
+);
+
+insert into backfill_progress (backfill_name, last_attraction_id)
+select cursor_name, last_change_id from outbox_cursor where cursor_name = 'attraction-numbers';
+
+delete from outbox_cursor where cursor_name = 'attraction-numbers';
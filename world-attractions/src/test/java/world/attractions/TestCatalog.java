@@ -0,0 +1,99 @@
+package world.attractions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.service.CityService;
+
+//Saves cities with their attractions and categories through the CityService class, for the tests that start the
+//application. Each save is its own transaction and publishes its change event, as a client request would.
+
+public class TestCatalog {
+
+	private final CityService cityService;
+
+	public TestCatalog(CityService cityService) {
+		this.cityService = cityService;
+	}
+
+	//Creates a category that is listed by the city and returns its ID
+	public Long saveCategory(Long cityId, String categoryName) {
+		CityCategory cityCategory = new CityCategory();
+		cityCategory.setCategoryName(categoryName);
+
+		return cityService.saveCategory(cityId, cityCategory).getCategoryId();
+	}
+
+	//Lists an existing category in the city
+	public void addCategory(Long cityId, Long categoryId, String categoryName) {
+		CityCategory cityCategory = new CityCategory();
+		cityCategory.setCategoryId(categoryId);
+		cityCategory.setCategoryName(categoryName);
+
+		cityService.saveCategory(cityId, cityCategory);
+	}
+
+	//Saves the cities in the country, each with the number of attractions. All of them list one new category with the name.
+	//The IDs of the cities are returned in the order that they were saved.
+	public SavedCities saveCities(int count, String country, int attractionsPerCity, String categoryName) {
+		List<Long> cityIds = new ArrayList<>();
+		Long categoryId = null;
+
+		for (int index = 0; index < count; index++) {
+			Long cityId = saveCity(country + " city " + index, country);
+
+			for (int attraction = 0; attraction < attractionsPerCity; attraction++) {
+				saveAttraction(cityId, "Attraction " + attraction, BigDecimal.valueOf(10 + attraction), 1000L * attraction);
+			}
+
+			if (Objects.isNull(categoryId)) {
+				categoryId = saveCategory(cityId, categoryName);
+			} else {
+				addCategory(cityId, categoryId, categoryName);
+			}
+
+			cityIds.add(cityId);
+		}
+
+		return new SavedCities(cityIds, categoryId);
+	}
+
+	//Saves a city without attractions or categories and returns its ID
+	public Long saveCity(String cityName, String country) {
+		CityData cityData = new CityData();
+		cityData.setCityName(cityName);
+		cityData.setCountry(country);
+		cityData.setLanguage("Italian");
+		cityData.setCurrency("Euro");
+		cityData.setSafetyLevel("2");
+		cityData.setLatitude(41.9);
+		cityData.setLongitude(12.5);
+
+		return cityService.saveCity(cityData).getCityId();
+	}
+
+	//Saves an attraction in the city with a price in euros and returns the saved attraction
+	public CityAttraction saveAttraction(Long cityId, String attractionName, BigDecimal price, Long visitors) {
+		CityAttraction cityAttraction = new CityAttraction();
+		cityAttraction.setAttractionName(attractionName);
+		cityAttraction.setDescription("A test attraction");
+		cityAttraction.setTicketPrice("€" + price);
+		cityAttraction.setVisitorsYearly(String.valueOf(visitors));
+		cityAttraction.setTicketPriceAmount(price);
+		cityAttraction.setTicketPriceCurrency("EUR");
+		cityAttraction.setVisitorsYearlyCount(visitors);
+		cityAttraction.setLatitude(41.9);
+		cityAttraction.setLongitude(12.5);
+
+		return cityService.saveAttraction(cityId, cityAttraction);
+	}
+
+	//The IDs of the cities that saveCities() saved and of the category that they list
+	public record SavedCities(List<Long> cityIds, Long categoryId) {
+	}
+}
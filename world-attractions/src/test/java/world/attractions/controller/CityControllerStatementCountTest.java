@@ -0,0 +1,163 @@
+package world.attractions.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import world.attractions.TestCatalog;
+import world.attractions.TestCatalog.SavedCities;
+import world.attractions.dao.QueryCounter;
+import world.attractions.service.CityService;
+
+//Checks that the city list endpoints send the same number of SQL statements for 2 cities as for 20, so the attractions
+//and categories of the cities are not loaded with one query per city. The statements of each request are read from the
+//world.attractions.request.statements summary that the QueryMetricsInterceptor class records. Each request asks for
+//cities that no earlier request read, so the caches do not answer it.
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CityControllerStatementCountTest {
+
+	private static final int FEW_CITIES = 2;
+	private static final int MANY_CITIES = 20;
+	private static final int ATTRACTIONS_PER_CITY = 3;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private CityService cityService;
+
+	private TestCatalog catalog;
+	private String fewCountry;
+	private String manyCountry;
+	private SavedCities fewCities;
+	private SavedCities manyCities;
+
+	//Saves two groups of cities, each in a country and category of its own
+	@BeforeEach
+	void saveCities() {
+		catalog = new TestCatalog(cityService);
+		fewCountry = "Few-" + System.nanoTime();
+		manyCountry = "Many-" + System.nanoTime();
+
+		fewCities = catalog.saveCities(FEW_CITIES, fewCountry, ATTRACTIONS_PER_CITY, fewCountry);
+		manyCities = catalog.saveCities(MANY_CITIES, manyCountry, ATTRACTIONS_PER_CITY, manyCountry);
+	}
+
+	@AfterEach
+	void clearCounts() {
+		QueryCounter.clear();
+	}
+
+	@Test
+	void cityPageStatementsDoNotGrowWithThePageSize() throws Exception {
+		long few = countStatements("/city", pageUri(fewCities));
+		long many = countStatements("/city", pageUri(manyCities));
+
+		assertThat(few).isPositive();
+		assertThat(many).isEqualTo(few);
+	}
+
+	@Test
+	void cityBatchStatementsDoNotGrowWithTheNumberOfIds() throws Exception {
+		long few = countStatements("/city", "/city?ids=" + joinIds(fewCities.cityIds()));
+		long many = countStatements("/city", "/city?ids=" + joinIds(manyCities.cityIds()));
+
+		assertThat(few).isPositive();
+		assertThat(many).isEqualTo(few);
+	}
+
+	@Test
+	void filteredCityStatementsDoNotGrowWithTheCities() throws Exception {
+		String fields = "&fields=cityName,attractions,categories";
+		long few = countStatements("/city", "/city?country=" + fewCountry + fields);
+		long many = countStatements("/city", "/city?country=" + manyCountry + fields);
+
+		assertThat(few).isPositive();
+		assertThat(many).isEqualTo(few);
+	}
+
+	@Test
+	void categoryStatementsDoNotGrowWithTheCities() throws Exception {
+		long few = countStatements("/category/{categoryId}", "/category/" + fewCities.categoryId());
+		long many = countStatements("/category/{categoryId}", "/category/" + manyCities.categoryId());
+
+		assertThat(few).isPositive();
+		assertThat(many).isEqualTo(few);
+	}
+
+	@Test
+	void categoryFieldStatementsDoNotGrowWithTheCities() throws Exception {
+		String fields = "?fields=cityName,attractions,categories";
+		long few = countStatements("/category/{categoryId}", "/category/" + fewCities.categoryId() + fields);
+		long many = countStatements("/category/{categoryId}", "/category/" + manyCities.categoryId() + fields);
+
+		assertThat(few).isPositive();
+		assertThat(many).isEqualTo(few);
+	}
+
+	//GET /city without parameters writes the cities on another thread after the handler returns, so the interceptor
+	//does not count its statements. The method that writes them is called on this thread instead.
+	@Test
+	void allCityStatementsDoNotGrowWithTheCities() throws Exception {
+		long before = countWriteAllCities();
+		catalog.saveCities(MANY_CITIES, "More-" + System.nanoTime(), ATTRACTIONS_PER_CITY, "More");
+
+		assertThat(before).isPositive();
+		assertThat(countWriteAllCities()).isEqualTo(before);
+	}
+
+	//Sends the GET request and returns the number of SQL statements that it sent. The pattern is the URI pattern of
+	//the endpoint that the summary is tagged with.
+	private long countStatements(String pattern, String uri) throws Exception {
+		double before = statementTotal(pattern);
+		mockMvc.perform(get(uri)).andExpect(status().isOk());
+
+		return Math.round(statementTotal(pattern) - before);
+	}
+
+	private double statementTotal(String pattern) {
+		DistributionSummary summary = meterRegistry.find("world.attractions.request.statements")
+				.tags("method", "GET", "uri", pattern).summary();
+
+		return Objects.isNull(summary) ? 0 : summary.totalAmount();
+	}
+
+	//Writes every city in one chunk and returns the number of SQL statements that it sent
+	private long countWriteAllCities() throws Exception {
+		QueryCounter.reset();
+		cityService.writeAllCities(CityService.MAX_PAGE_SIZE, OutputStream.nullOutputStream());
+
+		return QueryCounter.getStatements();
+	}
+
+	//The page that starts at the first of the cities and holds all of them. Their IDs are consecutive.
+	private static String pageUri(SavedCities cities) {
+		return "/city?pageSize=" + cities.cityIds().size() + "&pageToken=" + (cities.cityIds().get(0) - 1);
+	}
+
+	private static String joinIds(List<Long> ids) {
+		return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+	}
+}
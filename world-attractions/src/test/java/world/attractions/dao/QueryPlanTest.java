@@ -0,0 +1,197 @@
+package world.attractions.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import world.attractions.TestCatalog;
+import world.attractions.TestCatalog.SavedCities;
+import world.attractions.controller.model.CityQuery;
+import world.attractions.service.CityService;
+
+//Checks that the hot queries read the tables through an index. Each query is run through its DAO method, the SQL that
+//Hibernate generated for it is captured by a QueryCounter that also keeps the SQL, and H2 plans that SQL with EXPLAIN.
+//A plan that reads a table with a tableScan means that the schema has no index for the query. The schema is created by
+//the Flyway migrations, as in production, so the indexes that are checked are the ones that the migrations create.
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+	private static final int CITIES = 20;
+	private static final int ATTRACTIONS_PER_CITY = 10;
+
+	@Autowired
+	private CityService cityService;
+
+	@Autowired
+	private CityDao cityDao;
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate readOnlyTransaction;
+	private SavedCities cities;
+	private String country;
+
+	//Saves the catalog once for every test and updates the table statistics that H2 plans with
+	@BeforeAll
+	void saveCatalog() {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+
+		country = "Planned-" + System.nanoTime();
+		cities = new TestCatalog(cityService).saveCities(CITIES, country, ATTRACTIONS_PER_CITY, country);
+		jdbcTemplate.execute("analyze");
+	}
+
+	@Test
+	void cityPageSeeksThePrimaryKey() {
+		assertIndexed(() -> cityDao.findByCityIdGreaterThanOrderByCityIdAsc(0L, PageRequest.of(0, 100)));
+	}
+
+	@Test
+	void cityGraphFetchesUseTheForeignKeys() {
+		assertIndexed(() -> cityDao.fetchAttractionsByCityIdIn(cities.cityIds()));
+		assertIndexed(() -> cityDao.fetchCategoriesByCityIdIn(cities.cityIds()));
+	}
+
+	@Test
+	void categorySummariesUseTheCategoryIndex() {
+		assertIndexed(() -> cityDao.findSummariesByCategoryId(cities.categoryId(), 0L, PageRequest.of(0, 100)));
+		assertIndexed(() -> cityDao.findCityIdsByCategoryId(cities.categoryId()));
+	}
+
+	@Test
+	void priceRangeUsesThePriceIndex() {
+		assertIndexed(() -> attractionDao.findByTicketPriceCurrencyAndTicketPriceAmountBetweenOrderByTicketPriceAmountAsc(
+				"EUR", BigDecimal.ZERO, BigDecimal.valueOf(20), PageRequest.of(0, 50)));
+	}
+
+	@Test
+	void mostVisitedUsesTheVisitorsIndex() {
+		assertIndexed(() -> attractionDao.findByVisitorsYearlyCountGreaterThanEqualOrderByVisitorsYearlyCountDesc(0L,
+				PageRequest.of(0, 10)));
+	}
+
+	//The filter and field queries of GET /city and GET /category/{categoryId}
+	@Test
+	void cityFieldQueriesUseTheFilterIndexes() {
+		CityQuery byCountry = new CityQuery();
+		byCountry.setCountry(country);
+		byCountry.setFields(List.of("cityName", CityDao.ATTRACTIONS, CityDao.CATEGORIES));
+
+		CityQuery inCategory = new CityQuery();
+		inCategory.setFields(List.of("cityName", "country"));
+
+		assertIndexed(() -> cityDao.findCityFields(byCountry, null, null, null));
+		assertIndexed(() -> cityDao.findCityFields(inCategory, cities.categoryId(), 0L, 100));
+	}
+
+	//The reads of the attraction location grid
+	@Test
+	void locationQueriesUseTheKeys() {
+		Long attractionId = attractionDao.findLocationsByCityIdIn(cities.cityIds()).get(0).getAttractionId();
+
+		assertIndexed(() -> attractionDao.findLocationsAfter(0L, PageRequest.of(0, 100)));
+		assertIndexed(() -> attractionDao.findLocationsByCityIdIn(cities.cityIds()));
+		assertIndexed(() -> attractionDao.findLocationsByAttractionId(attractionId));
+	}
+
+	//The reads that update the country and category statistics after a write
+	@Test
+	void statisticsQueriesUseTheKeys() {
+		assertIndexed(() -> cityDao.findGroupingsByCityIdIn(cities.cityIds()));
+		assertIndexed(() -> attractionDao.findTotalsByCityIdIn(cities.cityIds()));
+	}
+
+	//Runs the query in a read-only transaction, captures the statements that it sent and checks the plan of each one
+	private void assertIndexed(Runnable query) {
+		List<String> statements;
+		SqlCapture.start();
+
+		try {
+			readOnlyTransaction.executeWithoutResult(status -> query.run());
+		} finally {
+			statements = SqlCapture.stop();
+		}
+
+		assertThat(statements).isNotEmpty();
+		statements.forEach(this::assertNoTableScan);
+	}
+
+	//Plans the statement with EXPLAIN. H2 chooses the indexes when the statement is prepared, so the parameters are
+	//bound to null.
+	private void assertNoTableScan(String sql) {
+		Object[] parameters = new Object[(int) sql.chars().filter(character -> character == '?').count()];
+		String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, parameters);
+
+		assertThat(plan).as(sql).doesNotContainIgnoringCase("tableScan");
+	}
+
+	@TestConfiguration
+	static class SqlCaptureConfig {
+
+		//Replaces the QueryCounter that MetricsConfig registers with Hibernate
+		@Bean
+		@Primary
+		SqlCapture sqlCapture() {
+			return new SqlCapture();
+		}
+	}
+
+	//Counts the statements in the same way as the QueryCounter class, and keeps the SQL of the statements that are
+	//prepared on a thread between start() and stop()
+	static class SqlCapture extends QueryCounter {
+		private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+		SqlCapture() {
+			super(0);
+		}
+
+		@Override
+		public String inspect(String sql) {
+			List<String> captured = CAPTURED.get();
+
+			if (Objects.nonNull(captured)) {
+				captured.add(sql);
+			}
+
+			return super.inspect(sql);
+		}
+
+		static void start() {
+			CAPTURED.set(new ArrayList<>());
+		}
+
+		static List<String> stop() {
+			List<String> captured = CAPTURED.get();
+			CAPTURED.remove();
+			return captured;
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package world.attractions.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//Checks the routing of ReplicaRoutingDataSource with three in-memory H2 databases that stand for the primary and two
+//replicas. Each database holds its own name, so a read shows which database it went to. The data source is wrapped in a
+//LazyConnectionDataSourceProxy as in ReplicaRoutingConfig.
+
+class ReplicaRoutingDataSourceTest {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private ReplicaRoutingDataSource routingDataSource;
+	private StoppableDataSource replica1;
+	private StoppableDataSource replica2;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readOnlyTransaction;
+	private TransactionTemplate transaction;
+
+	@BeforeEach
+	void createDatabases() {
+		replica1 = new StoppableDataSource(createDatabase("replica-1"));
+		replica2 = new StoppableDataSource(createDatabase("replica-2"));
+
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-1", replica1);
+		replicas.put("replica-2", replica2);
+
+		routingDataSource = new ReplicaRoutingDataSource(createDatabase("primary"), replicas, null);
+		routingDataSource.afterPropertiesSet();
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	@AfterEach
+	void unpin() {
+		ReplicaRoutingDataSource.unpin();
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplicasInTurn() {
+		assertThat(List.of(readOnly(), readOnly())).containsExactlyInAnyOrder("replica-1", "replica-2");
+	}
+
+	@Test
+	void writeTransactionsGoToThePrimary() {
+		assertThat(transaction.<String>execute(status -> readName())).isEqualTo("primary");
+	}
+
+	@Test
+	void pinnedReadsGoToThePrimaryUntilUnpinned() {
+		ReplicaRoutingDataSource.pinToPrimary();
+		assertThat(readOnly()).isEqualTo("primary");
+
+		ReplicaRoutingDataSource.unpin();
+		assertThat(readOnly()).startsWith("replica-");
+	}
+
+	@Test
+	void callOnPrimaryReadsFromThePrimaryAndRestoresTheRouting() {
+		assertThat(ReplicaRoutingDataSource.<String>callOnPrimary(this::readOnly)).isEqualTo("primary");
+		assertThat(readOnly()).startsWith("replica-");
+		assertThat(ReplicaRoutingDataSource.isRouted()).isFalse();
+
+		ReplicaRoutingDataSource.pinToPrimary();
+		ReplicaRoutingDataSource.callOnPrimary(this::readOnly);
+		assertThat(readOnly()).isEqualTo("primary");
+	}
+
+	@Test
+	void stickyReadsStayOnOneReplicaAndFallBackToThePrimary() {
+		ReplicaRoutingDataSource.stickToOneReplica();
+		String replica = readOnly();
+
+		for (int read = 0; read < 5; read++) {
+			assertThat(readOnly()).isEqualTo(replica);
+		}
+
+		stop(replica);
+		routingDataSource.checkReplicas();
+
+		//The other replica may be further behind than the one that the earlier reads saw
+		assertThat(readOnly()).isEqualTo("primary");
+	}
+
+	@Test
+	void capturedRouteIsRestoredOnAnotherThread() {
+		ReplicaRoutingDataSource.stickToOneReplica();
+		String replica = readOnly();
+		ReplicaRoutingDataSource.Route route = ReplicaRoutingDataSource.captureRoute();
+
+		String asyncRead = CompletableFuture.supplyAsync(() -> {
+			ReplicaRoutingDataSource.restoreRoute(route);
+
+			try {
+				return readOnly();
+			} finally {
+				ReplicaRoutingDataSource.unpin();
+			}
+		}).join();
+
+		assertThat(asyncRead).isEqualTo(replica);
+	}
+
+	@Test
+	void failedReplicaIsEjectedAndReadmitted() {
+		replica1.setStopped(true);
+		Set<String> reads = new HashSet<>();
+
+		for (int read = 0; read < 4; read++) {
+			reads.add(readOnly());
+		}
+
+		assertThat(reads).doesNotContain("replica-1").contains("replica-2");
+		assertThat(routingDataSource.getReplicaHealth()).containsEntry("replica-1", false);
+
+		replica1.setStopped(false);
+		routingDataSource.checkReplicas();
+
+		assertThat(routingDataSource.getReplicaHealth()).containsEntry("replica-1", true);
+		assertThat(List.of(readOnly(), readOnly())).contains("replica-1");
+	}
+
+	private String readOnly() {
+		return readOnlyTransaction.execute(status -> readName());
+	}
+
+	private String readName() {
+		return jdbcTemplate.queryForObject("select name from node", String.class);
+	}
+
+	private void stop(String replica) {
+		(replica.equals("replica-1") ? replica1 : replica2).setStopped(true);
+	}
+
+	private static DataSource createDatabase(String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:routing-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("create table node (name varchar(32))");
+		jdbcTemplate.update("insert into node (name) values (?)", name);
+		return dataSource;
+	}
+
+	//A replica that refuses connections while it is stopped, like a replica that is down
+	private static class StoppableDataSource extends DelegatingDataSource {
+		private volatile boolean stopped;
+
+		StoppableDataSource(DataSource dataSource) {
+			super(dataSource);
+		}
+
+		void setStopped(boolean stopped) {
+			this.stopped = stopped;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (stopped) {
+				throw new SQLException("The replica is stopped.");
+			}
+
+			return super.getConnection();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package world.attractions.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import world.attractions.TestCatalog;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.City;
+import world.attractions.service.CityService;
+
+//Checks that the l2cache profile serves repeated reads of cities, their collections and the cached city page query from
+//the second-level cache. The first read of each test goes to the database and the second one sends no SQL statements,
+//which is counted on this thread by the QueryCounter class. The Hibernate statistics show the cache hits.
+
+@SpringBootTest
+@ActiveProfiles({ "test", "l2cache" })
+class SecondLevelCacheTest {
+
+	private static final int ATTRACTIONS_PER_CITY = 3;
+
+	@Autowired
+	private CityService cityService;
+
+	@Autowired
+	private CityDao cityDao;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate readOnlyTransaction;
+	private Statistics statistics;
+
+	@BeforeEach
+	void createTransaction() {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	void clearCounts() {
+		QueryCounter.clear();
+	}
+
+	@Test
+	void secondCityLoadIsServedFromTheCache() throws InterruptedException {
+		Long cityId = saveCities(1).get(0);
+
+		long firstStatements = countCityLoad(cityId);
+		long cityHits = entityHits(City.class);
+		long attractionHits = entityHits(Attraction.class);
+		long attractionsHits = collectionHits("attractions");
+		long categoriesHits = collectionHits("categories");
+		long secondStatements = countCityLoad(cityId);
+
+		assertThat(firstStatements).isPositive();
+		assertThat(secondStatements).isZero();
+		assertThat(entityHits(City.class)).isGreaterThan(cityHits);
+		assertThat(entityHits(Attraction.class)).isGreaterThanOrEqualTo(attractionHits + ATTRACTIONS_PER_CITY);
+		assertThat(collectionHits("attractions")).isGreaterThan(attractionsHits);
+		assertThat(collectionHits("categories")).isGreaterThan(categoriesHits);
+	}
+
+	@Test
+	void repeatedCityPageIsServedFromTheQueryCache() throws InterruptedException {
+		List<Long> cityIds = saveCities(3);
+		Long afterCityId = cityIds.get(0) - 1;
+
+		long firstStatements = countCityPage(afterCityId, cityIds.size());
+		long queryHits = statistics.getQueryCacheHitCount();
+		long secondStatements = countCityPage(afterCityId, cityIds.size());
+
+		assertThat(firstStatements).isPositive();
+		assertThat(secondStatements).isZero();
+		assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(queryHits);
+	}
+
+	//Saves the cities and empties the second-level cache and query cache, so the first read goes to the database.
+	//The query cache treats results that were read in the same instant as the last write to a table as out of date, so
+	//the method waits before it returns.
+	private List<Long> saveCities(int count) throws InterruptedException {
+		String country = "Cached-" + System.nanoTime();
+		List<Long> cityIds = new TestCatalog(cityService).saveCities(count, country, ATTRACTIONS_PER_CITY, country)
+				.cityIds();
+
+		entityManagerFactory.getCache().evictAll();
+		entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+		Thread.sleep(100);
+
+		return cityIds;
+	}
+
+	//Loads the city with its attractions and categories in a new transaction and returns the number of statements
+	private long countCityLoad(Long cityId) {
+		QueryCounter.reset();
+
+		readOnlyTransaction.executeWithoutResult(status -> {
+			City city = cityDao.findById(cityId).orElseThrow();
+			Hibernate.initialize(city.getAttractions());
+			Hibernate.initialize(city.getCategories());
+		});
+
+		return QueryCounter.getStatements();
+	}
+
+	//Reads the page of cities in a new transaction and returns the number of statements
+	private long countCityPage(Long afterCityId, int pageSize) {
+		QueryCounter.reset();
+
+		readOnlyTransaction.executeWithoutResult(
+				status -> cityDao.findByCityIdGreaterThanOrderByCityIdAsc(afterCityId, PageRequest.of(0, pageSize)));
+
+		return QueryCounter.getStatements();
+	}
+
+	private long entityHits(Class<?> entityClass) {
+		return statistics.getEntityStatistics(entityClass.getName()).getCacheHitCount();
+	}
+
+	private long collectionHits(String cityCollection) {
+		return statistics.getCollectionStatistics(City.class.getName() + "." + cityCollection).getCacheHitCount();
+	}
+}
@@ -0,0 +1,106 @@
+package world.attractions.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import world.attractions.controller.model.CityData;
+import world.attractions.entity.Attraction;
+import world.attractions.entity.Category;
+import world.attractions.entity.City;
+
+//Checks that the CityJsonWriter class writes the same bytes as the ObjectMapper writes for new CityData(city). The
+//ObjectMapper is built with the defaults that Spring Boot uses. The entities are created without a database: the
+//attractions and categories are added to the HashSets of the City class out of ID order, and nulls are left in every
+//field that can hold one.
+
+class CityJsonWriterTest {
+
+	private final ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+	private final CityJsonWriter cityJsonWriter = new CityJsonWriter(objectMapper);
+
+	@Test
+	void writesTheSameJsonAsCityData() throws Exception {
+		City city = city(7L, "Rome", "Italy", 41.9028, 12.4964);
+		city.setLanguage("Italian");
+		city.setCurrency("EUR");
+
+		addAttraction(city, 42L, "Colosseum", new BigDecimal("18.00"), "EUR", 7_600_000L, 41.8902, 12.4922);
+		addAttraction(city, 3L, "Pantheon", null, null, null, null, null);
+		addAttraction(city, 19L, "Trevi \"Fountain\"", new BigDecimal("0.5"), "EUR", 3_000_000L, 41.9009, 12.4833);
+		addAttraction(city, null, "Unsaved attraction", null, null, null, null, null);
+		addCategory(city, 12L, "History");
+		addCategory(city, 2L, "Food");
+		addCategory(city, 30L, null);
+
+		assertSameJson(city);
+	}
+
+	@Test
+	void writesNullsAndEmptyLists() throws Exception {
+		assertSameJson(city(null, null, null, null, null));
+	}
+
+	//The buffers are reused between calls, so each city has to be written without bytes from the one before
+	@Test
+	void writesEachCityFromAnEmptyBuffer() throws Exception {
+		City large = city(1L, "Large", "Italy", null, null);
+
+		for (long attractionId = 1; attractionId <= 50; attractionId++) {
+			addAttraction(large, attractionId, "Attraction " + attractionId, BigDecimal.TEN, "EUR", attractionId, null,
+					null);
+		}
+
+		for (City city : List.of(large, city(2L, "Small", "France", null, null), large)) {
+			assertSameJson(city);
+		}
+	}
+
+	private void assertSameJson(City city) throws Exception {
+		String expected = objectMapper.writeValueAsString(new CityData(city));
+		String actual = new String(cityJsonWriter.toBytes(city), StandardCharsets.UTF_8);
+
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	private static City city(Long cityId, String cityName, String country, Double latitude, Double longitude) {
+		City city = new City();
+		city.setCityId(cityId);
+		city.setCityName(cityName);
+		city.setCountry(country);
+		city.setLatitude(latitude);
+		city.setLongitude(longitude);
+		return city;
+	}
+
+	private static void addAttraction(City city, Long attractionId, String attractionName, BigDecimal amount,
+			String currency, Long visitorsYearlyCount, Double latitude, Double longitude) {
+		Attraction attraction = new Attraction();
+		attraction.setAttractionId(attractionId);
+		attraction.setAttractionName(attractionName);
+		attraction.setDescription(attractionName + " in " + city.getCityName());
+		attraction.setTicketPrice(amount == null ? null : amount + " " + currency);
+		attraction.setVisitorsYearly(visitorsYearlyCount == null ? null : visitorsYearlyCount.toString());
+		attraction.setTicketPriceAmount(amount);
+		attraction.setTicketPriceCurrency(currency);
+		attraction.setVisitorsYearlyCount(visitorsYearlyCount);
+		attraction.setLatitude(latitude);
+		attraction.setLongitude(longitude);
+		attraction.setCity(city);
+		city.getAttractions().add(attraction);
+	}
+
+	private static void addCategory(City city, Long categoryId, String categoryName) {
+		Category category = new Category();
+		category.setCategoryId(categoryId);
+		category.setCategoryName(categoryName);
+		city.getCategories().add(category);
+	}
+}
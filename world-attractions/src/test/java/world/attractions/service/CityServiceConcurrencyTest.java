@@ -0,0 +1,204 @@
+package world.attractions.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.test.context.ActiveProfiles;
+
+import world.attractions.TestCatalog;
+import world.attractions.controller.model.CityData;
+import world.attractions.controller.model.CityData.CityAttraction;
+import world.attractions.controller.model.CityData.CityCategory;
+import world.attractions.dao.AttractionDao;
+
+//Writes to one city from many threads at once through the saveAttraction() and saveCategory() methods and checks that
+//no write was lost. Adding attractions and linking categories do not update the city row, so they never conflict and
+//are never retried. Updates of one shared attraction conflict on its version and are retried, at most up to the
+//maxAttempts of the @Retryable write methods. Every retry is counted by a RetryListener bean, which Spring Retry calls
+//for every @Retryable method that does not name its own listeners.
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CityServiceConcurrencyTest {
+
+	private static final int WRITERS = 8;
+	private static final int WRITES_PER_WRITER = 25;
+
+	//The maxAttempts of the @Retryable write methods in the CityService class
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	private CityService cityService;
+
+	@Autowired
+	private AttractionDao attractionDao;
+
+	@Autowired
+	private RetryCounter retryCounter;
+
+	private TestCatalog catalog;
+	private Long cityId;
+
+	@BeforeEach
+	void saveCity() {
+		catalog = new TestCatalog(cityService);
+		cityId = catalog.saveCity("Concurrent city " + System.nanoTime(), "Italy");
+		retryCounter.reset();
+	}
+
+	@Test
+	void concurrentAppendsAreNotLostOrRetried() throws Exception {
+		Queue<Long> categoryIds = new ConcurrentLinkedQueue<>();
+
+		List<Throwable> failures = runWriters(writer -> {
+			for (int write = 0; write < WRITES_PER_WRITER; write++) {
+				catalog.saveAttraction(cityId, "Attraction " + writer + "-" + write, BigDecimal.TEN, 1000L);
+			}
+
+			categoryIds.add(catalog.saveCategory(cityId, "Category " + writer));
+		});
+
+		CityData city = cityService.retrieveCityById(cityId);
+
+		assertThat(failures).isEmpty();
+		assertThat(city.getAttractions()).hasSize(WRITERS * WRITES_PER_WRITER);
+		assertThat(city.getCategories()).extracting(CityCategory::getCategoryId)
+				.containsExactlyInAnyOrderElementsOf(categoryIds);
+		assertThat(retryCounter.getRetries()).isZero();
+	}
+
+	@Test
+	void concurrentUpdatesOfOneAttractionAreNotLost() throws Exception {
+		CityAttraction shared = catalog.saveAttraction(cityId, "Shared attraction", BigDecimal.TEN, 1000L);
+		AtomicLong updated = new AtomicLong();
+
+		List<Throwable> failures = runWriters(writer -> {
+			for (int write = 0; write < WRITES_PER_WRITER; write++) {
+				try {
+					cityService.saveAttraction(cityId, copy(shared, "Written by " + writer + "-" + write));
+					updated.incrementAndGet();
+				} catch (OptimisticLockingFailureException e) {
+					//The update conflicted on every attempt. It is counted as not written.
+				}
+			}
+		});
+
+		long version = attractionDao.findById(shared.getAttractionId()).orElseThrow().getVersion();
+
+		assertThat(failures).isEmpty();
+		assertThat(updated.get()).isPositive();
+		assertThat(version).isEqualTo(updated.get());
+		assertThat(retryCounter.getMostAttempts()).isLessThanOrEqualTo(MAX_ATTEMPTS);
+	}
+
+	//Runs the writer on every thread at once and returns what the writers threw
+	private List<Throwable> runWriters(Writer writer) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+
+		for (int thread = 0; thread < WRITERS; thread++) {
+			int writerNumber = thread;
+
+			futures.add(executor.submit(() -> {
+				start.await();
+				writer.write(writerNumber);
+				return null;
+			}));
+		}
+
+		start.countDown();
+
+		for (Future<?> future : futures) {
+			try {
+				future.get(1, TimeUnit.MINUTES);
+			} catch (Exception e) {
+				failures.add(e);
+			}
+		}
+
+		executor.shutdownNow();
+		return failures;
+	}
+
+	//Returns a copy of the attraction with another description, so every update changes the row
+	private static CityAttraction copy(CityAttraction attraction, String description) {
+		CityAttraction copy = new CityAttraction();
+		copy.setAttractionId(attraction.getAttractionId());
+		copy.setAttractionName(attraction.getAttractionName());
+		copy.setDescription(description);
+		copy.setLatitude(attraction.getLatitude());
+		copy.setLongitude(attraction.getLongitude());
+		return copy;
+	}
+
+	//The writes that one thread sends
+	@FunctionalInterface
+	private interface Writer {
+		void write(int writerNumber) throws Exception;
+	}
+
+	@TestConfiguration
+	static class RetryCounterConfig {
+
+		@Bean
+		RetryCounter retryCounter() {
+			return new RetryCounter();
+		}
+	}
+
+	//Counts the failed attempts of the @Retryable methods and keeps the most attempts that one call made
+	static class RetryCounter implements RetryListener {
+		private final AtomicLong retries = new AtomicLong();
+		private final AtomicLong mostAttempts = new AtomicLong();
+
+		@Override
+		public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+				Throwable throwable) {
+			retries.incrementAndGet();
+		}
+
+		//The retry count is the number of attempts that failed. A call that succeeded made one more attempt.
+		@Override
+		public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+				Throwable throwable) {
+			int attempts = context.getRetryCount() + (throwable == null ? 1 : 0);
+			mostAttempts.accumulateAndGet(attempts, Math::max);
+		}
+
+		void reset() {
+			retries.set(0);
+			mostAttempts.set(0);
+		}
+
+		long getRetries() {
+			return retries.get();
+		}
+
+		long getMostAttempts() {
+			return mostAttempts.get();
+		}
+	}
+}